@@ -1,21 +1,35 @@
 package com.example.spectestengine.controller;
 
+import static com.example.spectestengine.utils.Constants.QUEUED;
+import static com.example.spectestengine.utils.Constants.RUNNING;
+
+import com.example.spectestengine.dto.QueueStatsDTO;
+import com.example.spectestengine.dto.SpecCacheStatsDTO;
+import com.example.spectestengine.dto.TestRunCheckDTO;
 import com.example.spectestengine.dto.TestRunDTO;
+import com.example.spectestengine.dto.TestRunStatsDTO;
+import com.example.spectestengine.model.CheckType;
+import com.example.spectestengine.model.LoadProfile;
+import com.example.spectestengine.model.RunPriority;
 import com.example.spectestengine.model.SpecFormat;
 import com.example.spectestengine.service.TestRunService;
+import com.example.spectestengine.validation.annotation.ValidRunId;
 import com.example.spectestengine.validation.annotation.ValidSpecId;
 import com.example.spectestengine.validation.annotation.ValidSpecName;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -31,42 +45,132 @@ public class TestRunController {
     }
 
     @GetMapping("/all")
-    public ResponseEntity<List<TestRunDTO>> runAll(@RequestParam(defaultValue = "JSON") String format) {
-        log.debug("Received GET request to RUN all tests specification ");
-        List<TestRunDTO> resultDTOS = testRunService.runAllTestsSpec();
+    public ResponseEntity<List<TestRunDTO>> runAll(@RequestParam(defaultValue = "JSON") String format,
+                                                   @RequestParam(required = false) Long waitMs,
+                                                   @RequestParam(defaultValue = "BULK") String priority) {
+        log.debug("Received GET request to RUN all tests specification with priority: '{}'", priority);
+        List<TestRunDTO> resultDTOS = testRunService.runAllTestsSpec(RunPriority.fromName(priority), waitMs);
         MediaType requestedMediaType = SpecFormat.getMediaType(format);
         log.debug(RESPONSE_LOG, resultDTOS);
         return ResponseEntity.ok().contentType(requestedMediaType).body(resultDTOS);
     }
 
     @GetMapping("/by-id/{specId}")
-    public ResponseEntity<TestRunDTO> runById(@PathVariable @ValidSpecId Long specId) {
+    public ResponseEntity<TestRunDTO> runById(@PathVariable @ValidSpecId Long specId,
+                                              @RequestParam(required = false) Long waitMs) {
         log.debug("Received GET request to RUN test specification with id: '{}'", specId);
-        TestRunDTO resultDTO = testRunService.runTestBySpecId(specId);
+        TestRunDTO resultDTO = testRunService.runTestBySpecId(specId, waitMs);
         log.debug(RESPONSE_LOG, resultDTO);
-        return ResponseEntity.ok().contentType(resultDTO.mediaType()).body(resultDTO);
+        return ResponseEntity.status(getResponseStatus(resultDTO)).contentType(resultDTO.mediaType()).body(resultDTO);
     }
 
     @GetMapping("/by-name/{specName}")
-    public ResponseEntity<TestRunDTO> runByName(@PathVariable @ValidSpecName String specName) {
+    public ResponseEntity<TestRunDTO> runByName(@PathVariable @ValidSpecName String specName,
+                                                @RequestParam(required = false) Long waitMs) {
         log.debug("Received GET request to RUN test specification with name: '{}'", specName);
-        TestRunDTO resultDTO = testRunService.runTestWithSpecName(specName);
+        TestRunDTO resultDTO = testRunService.runTestWithSpecName(specName, waitMs);
         log.debug(RESPONSE_LOG, resultDTO);
-        return ResponseEntity.ok().contentType(resultDTO.mediaType()).body(resultDTO);
+        return ResponseEntity.status(getResponseStatus(resultDTO)).contentType(resultDTO.mediaType()).body(resultDTO);
     }
 
     @GetMapping("/in-range")
     public ResponseEntity<List<TestRunDTO>> runInRange(@RequestParam @ValidSpecId Long fromId,
                                                        @RequestParam @ValidSpecId Long toId,
-                                                       @RequestParam(defaultValue = "JSON") String format) {
+                                                       @RequestParam(defaultValue = "JSON") String format,
+                                                       @RequestParam(required = false) Long waitMs,
+                                                       @RequestParam(defaultValue = "BULK") String priority) {
         log.debug("Received GET request to RUN in range tests specification from id: '{}', to id: '{}'", fromId, toId);
         if (fromId > toId) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'fromId' must be less or equal than 'toId'");
         }
 
-        List<TestRunDTO> resultDTOS = testRunService.runTestsInSpecRangeId(fromId, toId);
+        List<TestRunDTO> resultDTOS = testRunService.runTestsInSpecRangeId(fromId, toId, RunPriority.fromName(priority), waitMs);
         MediaType requestedMediaType = SpecFormat.getMediaType(format);
         log.debug(RESPONSE_LOG, resultDTOS);
         return ResponseEntity.ok().contentType(requestedMediaType).body(resultDTOS);
     }
+
+    @GetMapping("/load/{specId}")
+    public ResponseEntity<TestRunDTO> runLoad(@PathVariable @ValidSpecId Long specId,
+                                              @RequestParam(defaultValue = "CLOSED") String model,
+                                              @RequestParam(required = false) Integer iterations,
+                                              @RequestParam(required = false) Integer concurrency,
+                                              @RequestParam(required = false) Double ratePerSecond,
+                                              @RequestParam(required = false) Long durationMs,
+                                              @RequestParam(required = false) Integer sampleEvery,
+                                              @RequestParam(required = false) Long waitMs) {
+        log.debug("Received GET request to RUN load test of specification with id: '{}', model: '{}'", specId, model);
+        LoadProfile loadProfile = LoadProfile.of(model, iterations, concurrency, ratePerSecond, durationMs, sampleEvery);
+        TestRunDTO resultDTO = testRunService.runLoadTestBySpecId(specId, loadProfile, waitMs);
+        log.debug(RESPONSE_LOG, resultDTO);
+        return ResponseEntity.status(getResponseStatus(resultDTO)).contentType(resultDTO.mediaType()).body(resultDTO);
+    }
+
+    @GetMapping("/result/{runId}")
+    public ResponseEntity<TestRunDTO> getRunResult(@PathVariable @ValidRunId Long runId,
+                                                   @RequestParam(required = false) Long waitMs) {
+        log.debug("Received GET request to get test run result with id: '{}'", runId);
+        TestRunDTO resultDTO = testRunService.getTestRunResult(runId, waitMs);
+        log.debug(RESPONSE_LOG, resultDTO);
+        return ResponseEntity.status(getResponseStatus(resultDTO)).contentType(resultDTO.mediaType()).body(resultDTO);
+    }
+
+    @PostMapping("/cancel/{runId}")
+    public ResponseEntity<TestRunDTO> cancelRun(@PathVariable @ValidRunId Long runId) {
+        log.debug("Received POST request to cancel test run with id: '{}'", runId);
+        TestRunDTO resultDTO = testRunService.cancelTestRun(runId);
+        log.debug(RESPONSE_LOG, resultDTO);
+        return ResponseEntity.status(getResponseStatus(resultDTO)).contentType(resultDTO.mediaType()).body(resultDTO);
+    }
+
+    @GetMapping("/queue")
+    public ResponseEntity<QueueStatsDTO> getQueueStats() {
+        log.debug("Received GET request to get test run queue stats");
+        QueueStatsDTO queueStatsDTO = testRunService.getQueueStats();
+        log.debug(RESPONSE_LOG, queueStatsDTO);
+        return ResponseEntity.ok(queueStatsDTO);
+    }
+
+    /*
+    Check outcomes for failure triage, e.g. '/checks?checkType=STATUS_CODE&host=api.example.com'
+    lists the status code failures against that host in the last 24 hours, newest first.
+     */
+    @GetMapping("/checks")
+    public ResponseEntity<List<TestRunCheckDTO>> getCheckResults(@RequestParam String checkType,
+                                                                 @RequestParam(defaultValue = "false") boolean passed,
+                                                                 @RequestParam(required = false) String host,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                                 @RequestParam(required = false) Integer limit) {
+        log.debug("Received GET request to get '{}' check results, passed: '{}', host: '{}'", checkType, passed, host);
+        List<TestRunCheckDTO> checkDTOS = testRunService.findCheckResults(CheckType.fromName(checkType), passed, host, from, to, limit);
+        log.debug(RESPONSE_LOG, checkDTOS);
+        return ResponseEntity.ok(checkDTOS);
+    }
+
+    /*
+    Pass rate, flakiness, duration percentiles and daily buckets of a spec over the last 'days' days,
+    read from the statistics rollups.
+     */
+    @GetMapping("/stats/{specId}")
+    public ResponseEntity<TestRunStatsDTO> getRunStats(@PathVariable @ValidSpecId Long specId,
+                                                       @RequestParam(required = false) Integer days) {
+        log.debug("Received GET request to get run statistics of specification id: '{}' for '{}' days", specId, days);
+        TestRunStatsDTO testRunStatsDTO = testRunService.getRunStats(specId, days);
+        log.debug(RESPONSE_LOG, testRunStatsDTO);
+        return ResponseEntity.ok(testRunStatsDTO);
+    }
+
+    @GetMapping("/spec-cache")
+    public ResponseEntity<SpecCacheStatsDTO> getSpecCacheStats() {
+        log.debug("Received GET request to get compiled specification cache stats");
+        SpecCacheStatsDTO specCacheStatsDTO = testRunService.getSpecCacheStats();
+        log.debug(RESPONSE_LOG, specCacheStatsDTO);
+        return ResponseEntity.ok(specCacheStatsDTO);
+    }
+
+    private HttpStatus getResponseStatus(TestRunDTO resultDTO) {
+        return QUEUED.equals(resultDTO.overallTestStatus()) || RUNNING.equals(resultDTO.overallTestStatus())
+                ? HttpStatus.ACCEPTED : HttpStatus.OK;
+    }
 }
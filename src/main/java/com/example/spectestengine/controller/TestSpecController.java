@@ -1,6 +1,7 @@
 package com.example.spectestengine.controller;
 
 import com.example.spectestengine.dto.TestSpecDTO;
+import com.example.spectestengine.dto.TestSpecPageDTO;
 import com.example.spectestengine.dto.TestSpecWithRunsDTO;
 import com.example.spectestengine.model.SpecFormat;
 import com.example.spectestengine.service.TestSpecService;
@@ -8,6 +9,7 @@ import com.example.spectestengine.validation.annotation.ValidSpecId;
 import com.example.spectestengine.validation.annotation.ValidSpec;
 import com.example.spectestengine.validation.annotation.ValidSpecName;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -19,7 +21,9 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Slf4j
@@ -68,10 +72,32 @@ public class TestSpecController {
         return ResponseEntity.ok().contentType(requestedMediaType).body(specDTOList);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<TestSpecPageDTO> getPage(@RequestParam(required = false) Long afterId,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(defaultValue = "JSON") String format) {
+        log.debug("Received GET request to get test specifications after id: '{}', limit: '{}'", afterId, limit);
+        TestSpecPageDTO specPageDTO = testSpecService.getSpecPage(afterId, limit);
+        MediaType requestedMediaType = SpecFormat.getMediaType(format);
+        log.debug("Request was successfully processed, '{}' specifications sent", specPageDTO.specs().size());
+        return ResponseEntity.ok().contentType(requestedMediaType).body(specPageDTO);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        log.debug("Received GET request to stream all test specifications");
+        StreamingResponseBody responseBody = testSpecService::streamAllSpecs;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(responseBody);
+    }
+
     @GetMapping("/with-runs/{specId}")
-    public ResponseEntity<TestSpecWithRunsDTO> getSpecWithRunsById(@PathVariable @ValidSpecId Long specId) {
-        log.debug("Received GET request to get test specification with run results: '{}'", specId);
-        TestSpecWithRunsDTO testSpecWithRunsDTO = testSpecService.getSpecWithRuns(specId);
+    public ResponseEntity<TestSpecWithRunsDTO> getSpecWithRunsById(@PathVariable @ValidSpecId Long specId,
+                                                                   @RequestParam(required = false) Long beforeId,
+                                                                   @RequestParam(required = false) Integer limit,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        log.debug("Received GET request to get test specification with run results: '{}', before run id: '{}'", specId, beforeId);
+        TestSpecWithRunsDTO testSpecWithRunsDTO = testSpecService.getSpecWithRuns(specId, beforeId, limit, from, to);
         log.debug(RESPONSE_LOG, testSpecWithRunsDTO);
         return ResponseEntity.ok().contentType(testSpecWithRunsDTO.mediaType()).body(testSpecWithRunsDTO);
     }
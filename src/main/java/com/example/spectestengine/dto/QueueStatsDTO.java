@@ -0,0 +1,13 @@
+package com.example.spectestengine.dto;
+
+import java.util.Map;
+
+public record QueueStatsDTO(String keyStrategy,
+                            int activeKeys,
+                            int queuedTasks,
+                            Map<String, Integer> queuedByPriority,
+                            int runningTasks,
+                            int throttledTasks,
+                            int workers,
+                            long evictedKeys) {
+}
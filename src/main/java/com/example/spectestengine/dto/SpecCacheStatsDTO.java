@@ -0,0 +1,9 @@
+package com.example.spectestengine.dto;
+
+public record SpecCacheStatsDTO(int size,
+                                int maxSize,
+                                long hits,
+                                long misses,
+                                double hitRate,
+                                long evictions) {
+}
@@ -0,0 +1,17 @@
+package com.example.spectestengine.dto;
+
+import com.example.spectestengine.model.CheckType;
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+public record TestRunCheckDTO(Long runId,
+                              Long specId,
+                              CheckType checkType,
+                              boolean passed,
+                              String host,
+                              String expectedSummary,
+                              String receivedSummary,
+                              @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                              LocalDateTime finishedAt) {
+}
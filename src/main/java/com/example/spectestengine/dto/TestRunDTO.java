@@ -14,6 +14,10 @@ public record TestRunDTO(Long runId,
                          String overallTestStatus,
                          JsonNode testResultLog,
                          @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                         LocalDateTime queuedAt,
+                         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                         LocalDateTime deadlineAt,
+                         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
                          LocalDateTime startedAt,
                          @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
                          LocalDateTime finishedAt) {
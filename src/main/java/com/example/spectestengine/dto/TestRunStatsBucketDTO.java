@@ -0,0 +1,16 @@
+package com.example.spectestengine.dto;
+
+import java.time.LocalDate;
+
+public record TestRunStatsBucketDTO(LocalDate date,
+                                    long passed,
+                                    long failed,
+                                    long errors,
+                                    long cancelled,
+                                    long expired,
+                                    long flips,
+                                    Long durationP50Ms,
+                                    Long durationP95Ms,
+                                    Long durationP99Ms,
+                                    Long durationMaxMs) {
+}
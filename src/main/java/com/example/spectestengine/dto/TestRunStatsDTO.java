@@ -0,0 +1,31 @@
+package com.example.spectestengine.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+Totals over the daily buckets since 'from'. 'passRate' and 'flakiness' (share of outcomes that flipped
+between pass and fail) are relative to executed runs: PASS, FAIL and ERROR.
+ */
+public record TestRunStatsDTO(Long specId,
+                              LocalDate from,
+                              long passed,
+                              long failed,
+                              long errors,
+                              long cancelled,
+                              long expired,
+                              Double passRate,
+                              Double flakiness,
+                              Long durationP50Ms,
+                              Long durationP95Ms,
+                              Long durationP99Ms,
+                              Long durationMaxMs,
+                              @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                              LocalDateTime lastPassAt,
+                              @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                              LocalDateTime lastFailAt,
+                              List<TestRunStatsBucketDTO> buckets) {
+}
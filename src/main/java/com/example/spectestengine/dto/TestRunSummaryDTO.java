@@ -0,0 +1,27 @@
+package com.example.spectestengine.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/*
+Run history entry without the result log, selected directly by TestRunRepository.findRunSummaries.
+The log of a run is fetched with GET /test/run/result/{runId}.
+ */
+public record TestRunSummaryDTO(Long runId,
+                                String overallTestStatus,
+                                @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                                LocalDateTime queuedAt,
+                                @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                                LocalDateTime startedAt,
+                                @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
+                                LocalDateTime finishedAt,
+                                Long durationMs) {
+
+    public TestRunSummaryDTO(Long runId, String overallTestStatus, LocalDateTime queuedAt,
+                             LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this(runId, overallTestStatus, queuedAt, startedAt, finishedAt,
+                startedAt == null || finishedAt == null ? null : Duration.between(startedAt, finishedAt).toMillis());
+    }
+}
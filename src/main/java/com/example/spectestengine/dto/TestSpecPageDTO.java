@@ -0,0 +1,10 @@
+package com.example.spectestengine.dto;
+
+import java.util.List;
+
+/*
+'nextAfterId' is passed as 'afterId' to get the next page, it is null on the last page.
+ */
+public record TestSpecPageDTO(List<TestSpecDTO> specs,
+                              Long nextAfterId) {
+}
@@ -14,5 +14,6 @@ public record TestSpecWithRunsDTO(Long id,
                                   MediaType mediaType,
                                   @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss")
                                   LocalDateTime createdAt,
-                                  List<TestRunDTO> runs) {
+                                  List<TestRunSummaryDTO> runs,
+                                  Long nextBeforeId) {
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.PASS;
+
+import com.example.spectestengine.engine.handler.ArrayBodyCheckHandler;
+import com.example.spectestengine.engine.handler.BodyCheckHandler;
+import com.example.spectestengine.engine.handler.BodyPathCheckHandler;
+import com.example.spectestengine.engine.handler.CheckSummary;
+import com.example.spectestengine.engine.handler.ContentTypeCheckHandler;
+import com.example.spectestengine.engine.handler.LatencyCheckHandler;
+import com.example.spectestengine.engine.handler.StatusCodeCheckHandler;
+import com.example.spectestengine.engine.handler.TestCheck;
+import com.example.spectestengine.engine.handler.TestCheckHandler;
+import com.example.spectestengine.engine.transport.TransportResponse;
+import com.example.spectestengine.model.CheckType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+The checks a spec asks for, compiled once together with the spec. A run only executes these,
+and the response body is normalized up front only when one of them needs the tree.
+Each check runs against PASS, so its own outcome is known even after an earlier check failed;
+the first non-PASS outcome becomes the run status, as when the status was passed along.
+ */
+public final class CheckPlan {
+    private static final List<TestCheckHandler> CHECK_HANDLERS = List.of(
+            new StatusCodeCheckHandler(), new ContentTypeCheckHandler(),
+            new BodyPathCheckHandler(), new BodyCheckHandler(), new ArrayBodyCheckHandler(), new LatencyCheckHandler()
+    );
+
+    private record PlannedCheck(TestCheckHandler handler, TestCheck check) {
+    }
+
+    /*
+    One test_run_checks row of a run; a check covering several items has one per item.
+     */
+    record CheckOutcome(CheckType checkType, boolean passed, String expectedSummary, String receivedSummary) {
+    }
+
+    private final List<PlannedCheck> checks;
+    private final boolean normalizesBody;
+
+    private CheckPlan(List<PlannedCheck> checks, boolean normalizesBody) {
+        this.checks = checks;
+        this.normalizesBody = normalizesBody;
+    }
+
+    static CheckPlan compile(JsonNode specification) {
+        List<PlannedCheck> checks = new ArrayList<>();
+        boolean normalizesBody = false;
+        for (TestCheckHandler handler : CHECK_HANDLERS) {
+            TestCheck check = handler.compile(specification);
+            if (check != null) {
+                checks.add(new PlannedCheck(handler, check));
+                normalizesBody |= handler.needsNormalizedBody();
+            }
+        }
+        return new CheckPlan(List.copyOf(checks), normalizesBody);
+    }
+
+    boolean normalizesBody() {
+        return normalizesBody;
+    }
+
+    String run(JsonNode normalizedResponse, TransportResponse response, ObjectNode resultLog, String checkStatus) {
+        return run(normalizedResponse, response, resultLog, checkStatus, null);
+    }
+
+    /*
+    'outcomes' receives one entry per executed check, null when they are not needed (load runs).
+     */
+    String run(JsonNode normalizedResponse, TransportResponse response, ObjectNode resultLog, String checkStatus,
+               List<CheckOutcome> outcomes) {
+        for (PlannedCheck plannedCheck : checks) {
+            String checkResult = plannedCheck.check().check(normalizedResponse, response, resultLog, PASS);
+            if (outcomes != null) {
+                CheckType checkType = plannedCheck.handler().checkType();
+                for (CheckSummary summary : plannedCheck.handler().summarize(resultLog, PASS.equals(checkResult))) {
+                    outcomes.add(new CheckOutcome(checkType, summary.passed(), summary.expectedSummary(), summary.receivedSummary()));
+                }
+            }
+            if (PASS.equals(checkStatus)) {
+                checkStatus = checkResult;
+            }
+        }
+        return checkStatus;
+    }
+}
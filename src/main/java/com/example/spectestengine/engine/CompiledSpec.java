@@ -0,0 +1,16 @@
+package com.example.spectestengine.engine;
+
+import com.example.spectestengine.validation.validator.SpecValidator.ValidatedSpec;
+
+import java.util.Map;
+
+/*
+A spec ready to execute: the validated tree, the request parts derived from the raw spec and the check plan.
+Shared between runs through CompiledSpecCache, so neither the tree nor the headers may be modified.
+ */
+public record CompiledSpec(ValidatedSpec validatedSpec,
+                           Map<String, String> headers,
+                           String body,
+                           String contentType,
+                           CheckPlan checkPlan) {
+}
@@ -0,0 +1,124 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.HEADERS;
+
+import com.example.spectestengine.dto.SpecCacheStatsDTO;
+import com.example.spectestengine.model.TestSpecEntity;
+import com.example.spectestengine.utils.ContentHasher;
+import com.example.spectestengine.utils.SpecCanonicalizer;
+import com.example.spectestengine.utils.SpecCanonicalizer.CanonicalSpec;
+import com.example.spectestengine.utils.SpecFormatMapper;
+import com.example.spectestengine.validation.validator.SpecValidator;
+import com.example.spectestengine.validation.validator.SpecValidator.ValidatedSpec;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+LRU cache of compiled specs keyed by spec id. An entry is only used while the content hash of the
+stored spec still matches, so a stale entry is never executed even if an update was not evicted
+(e.g. one made by another node). Compilation runs outside the lock; two threads compiling the same
+spec at once both succeed and the last one is kept.
+ */
+@Slf4j
+@Component
+public class CompiledSpecCache {
+    private record CacheEntry(String contentHash, CompiledSpec compiledSpec) {
+    }
+
+    private final int maxSize;
+    private final Map<Long, CacheEntry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CompiledSpecCache(@Value("${spectestengine.spec-cache.max-size:1000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+                if (size() > CompiledSpecCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public CompiledSpec get(TestSpecEntity specEntity) {
+        String contentHash = specEntity.getContentHash() != null ? specEntity.getContentHash() : ContentHasher.sha256(specEntity.getSpec());
+        CacheEntry cached;
+        synchronized (entries) {
+            cached = entries.get(specEntity.getId());
+        }
+        if (cached != null && cached.contentHash().equals(contentHash)) {
+            hits.increment();
+            return cached.compiledSpec();
+        }
+
+        misses.increment();
+        CompiledSpec compiledSpec = compile(specEntity);
+        if (maxSize > 0 && specEntity.getId() != null) {
+            synchronized (entries) {
+                entries.put(specEntity.getId(), new CacheEntry(contentHash, compiledSpec));
+            }
+        }
+        return compiledSpec;
+    }
+
+    public void evict(Long specId) {
+        synchronized (entries) {
+            if (entries.remove(specId) != null) {
+                evictions.increment();
+                log.debug("Compiled specification ID: '{}' evicted from cache", specId);
+            }
+        }
+    }
+
+    public SpecCacheStatsDTO getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return new SpecCacheStatsDTO(size, maxSize, hitCount, missCount,
+                lookups == 0 ? 0 : (double) hitCount / lookups, evictions.sum());
+    }
+
+    /*
+    Specs saved at create/update carry their canonical form and request body, so only the cheap field
+    validation runs here. Specs stored before those columns existed are canonicalized from the raw text.
+     */
+    private static CompiledSpec compile(TestSpecEntity specEntity) {
+        ValidatedSpec validatedSpec;
+        String requestBody;
+        if (specEntity.getNormalizedSpec() != null) {
+            validatedSpec = SpecValidator.validate(SpecFormatMapper.fromJson(specEntity.getNormalizedSpec()));
+            requestBody = specEntity.getRequestBody();
+        } else {
+            CanonicalSpec canonicalSpec = SpecCanonicalizer.canonicalize(specEntity.getSpec());
+            validatedSpec = canonicalSpec.validatedSpec();
+            requestBody = canonicalSpec.requestBody();
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        JsonNode jsonSpecNode = validatedSpec.jsonSpecNode();
+        if (jsonSpecNode.has(HEADERS)) {
+            jsonSpecNode.get(HEADERS).properties().forEach(header ->
+                    headers.put(header.getKey(), header.getValue().asText())
+            );
+        }
+
+        return new CompiledSpec(validatedSpec, Collections.unmodifiableMap(headers), requestBody,
+                specEntity.getFormat().getMediaType().toString(), CheckPlan.compile(jsonSpecNode));
+    }
+}
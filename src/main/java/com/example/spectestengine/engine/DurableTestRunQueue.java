@@ -0,0 +1,171 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.QUEUED;
+import static com.example.spectestengine.utils.Constants.RUNNING;
+
+import com.example.spectestengine.model.TestRunTaskEntity;
+import com.example.spectestengine.repository.QueueKeyLeaseRepository;
+import com.example.spectestengine.repository.TestRunRepository;
+import com.example.spectestengine.repository.TestRunTaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/*
+Durable mode: runs are persisted in test_run_tasks and claimed in batches with FOR UPDATE SKIP LOCKED,
+then handed to the in-memory TestRunQueue, which still enforces per-key ordering and priorities.
+A task is deleted together with the saved result, so anything left after a crash is executed again.
+
+Cluster mode: several nodes share the table. A node only claims tasks of queue keys it holds a lease on
+in test_run_key_leases, so each key is executed by one node at a time. Leases are renewed on every poll;
+when a node dies its leases expire, its claimed tasks go back to PENDING and another node takes the keys over.
+
+Tasks of bulk requests are claimed after the others, and a node holds at most 'bulk-concurrency' of them,
+which replaces the in-memory feeder's limit.
+
+A claimed run is RUNNING for its node in test_runs. Whenever tasks are released their RUNNING runs are QUEUED
+again; a node whose claim was released meanwhile (e.g. a lease lapsed during a long pause) has its result discarded.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spectestengine.queue.durable", havingValue = "true")
+public class DurableTestRunQueue {
+    private final TestRunTaskRepository testRunTaskRepository;
+    private final QueueKeyLeaseRepository queueKeyLeaseRepository;
+    private final TestRunRepository testRunRepository;
+    private final TestRunEngine testRunEngine;
+    private final String nodeId;
+    private final int batchSize;
+    private final int maxClaimed;
+    private final int bulkConcurrency;
+    private final boolean clusterMode;
+    private final double leaseTtlSeconds;
+    private final int maxKeysPerNode;
+    private volatile boolean polling = true;
+
+    public DurableTestRunQueue(TestRunTaskRepository testRunTaskRepository, QueueKeyLeaseRepository queueKeyLeaseRepository,
+                               TestRunRepository testRunRepository, TestRunEngine testRunEngine,
+                               @Value("${spectestengine.node-id:${random.uuid}}") String nodeId,
+                               @Value("${spectestengine.queue.durable.batch-size:100}") int batchSize,
+                               @Value("${spectestengine.queue.durable.max-claimed:1000}") int maxClaimed,
+                               @Value("${spectestengine.run.bulk-concurrency:64}") int bulkConcurrency,
+                               @Value("${spectestengine.queue.cluster:false}") boolean clusterMode,
+                               @Value("${spectestengine.queue.cluster.lease-ttl-ms:15000}") long leaseTtlMs,
+                               @Value("${spectestengine.queue.cluster.max-keys-per-node:1000}") int maxKeysPerNode) {
+        this.testRunTaskRepository = testRunTaskRepository;
+        this.queueKeyLeaseRepository = queueKeyLeaseRepository;
+        this.testRunRepository = testRunRepository;
+        this.testRunEngine = testRunEngine;
+        this.nodeId = nodeId;
+        this.batchSize = batchSize;
+        this.maxClaimed = maxClaimed;
+        this.bulkConcurrency = bulkConcurrency;
+        this.clusterMode = clusterMode;
+        this.leaseTtlSeconds = leaseTtlMs / 1000.0;
+        this.maxKeysPerNode = maxKeysPerNode;
+    }
+
+    /*
+    Tasks claimed by a previous process that died without releasing them go back to PENDING.
+    A single node owns the table and releases every claim; in cluster mode only claims without
+    a live lease are released, the others belong to running nodes.
+     */
+    @PostConstruct
+    void recoverClaimedTasks() {
+        int recoveredTasks = clusterMode ? testRunTaskRepository.releaseOrphanedClaims() : testRunTaskRepository.releaseAllClaimed();
+        requeueReleasedRuns();
+        if (recoveredTasks > 0) {
+            log.info("Recovered '{}' unfinished test run tasks from previous run", recoveredTasks);
+        }
+        log.info("Durable test run queue started on node '{}', cluster mode: '{}'", nodeId, clusterMode);
+    }
+
+    @Scheduled(fixedDelayString = "${spectestengine.queue.durable.poll-interval-ms:500}")
+    void poll() {
+        if (!polling) {
+            return;
+        }
+
+        if (clusterMode) {
+            maintainLeases();
+            testRunEngine.completeRunsFinishedElsewhere();
+        }
+
+        int capacity = (int) Math.min(batchSize, maxClaimed - testRunTaskRepository.countByClaimedBy(nodeId));
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<TestRunTaskEntity> claimedTasks = new ArrayList<>(claim(false, capacity));
+        int bulkCapacity = (int) Math.min(capacity - claimedTasks.size(),
+                bulkConcurrency - testRunTaskRepository.countByClaimedByAndBulk(nodeId, true));
+        if (bulkCapacity > 0) {
+            claimedTasks.addAll(claim(true, bulkCapacity));
+        }
+        claimedTasks.stream()
+                .sorted(Comparator.comparing(TestRunTaskEntity::getPriority).thenComparing(TestRunTaskEntity::getId))
+                .forEach(this::execute);
+    }
+
+    private List<TestRunTaskEntity> claim(boolean bulk, int capacity) {
+        if (capacity <= 0) {
+            return List.of();
+        }
+        return clusterMode
+                ? testRunTaskRepository.claimLeasedBatch(nodeId, bulk, capacity)
+                : testRunTaskRepository.claimBatch(nodeId, bulk, capacity);
+    }
+
+    private void maintainLeases() {
+        queueKeyLeaseRepository.renewLeases(nodeId, leaseTtlSeconds);
+        int orphanedTasks = testRunTaskRepository.releaseOrphanedClaims();
+        if (orphanedTasks > 0) {
+            log.warn("Released '{}' test run tasks of nodes with expired leases", orphanedTasks);
+            requeueReleasedRuns();
+        }
+
+        queueKeyLeaseRepository.releaseIdleLeases(nodeId);
+        long freeKeys = maxKeysPerNode - queueKeyLeaseRepository.countByNodeId(nodeId);
+        if (freeKeys > 0) {
+            queueKeyLeaseRepository.acquireLeases(nodeId, leaseTtlSeconds, freeKeys);
+        }
+    }
+
+    private void execute(TestRunTaskEntity task) {
+        try {
+            testRunEngine.executeClaimedTask(task);
+        } catch (ResponseStatusException exception) {
+            log.debug("Test run task id: '{}' released: '{}'", task.getId(), exception.getReason());
+            testRunTaskRepository.releaseTask(task.getId());
+            requeueReleasedRuns();
+        }
+    }
+
+    private void requeueReleasedRuns() {
+        int requeuedRuns = testRunRepository.requeueReleasedRuns(QUEUED, RUNNING);
+        if (requeuedRuns > 0) {
+            log.info("'{}' running test runs of released tasks are queued again", requeuedRuns);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        polling = false;
+        testRunEngine.shutdown();
+        int releasedTasks = testRunTaskRepository.releaseClaimed(nodeId);
+        requeueReleasedRuns();
+        if (clusterMode) {
+            queueKeyLeaseRepository.releaseLeases(nodeId);
+        }
+        log.info("Released '{}' unfinished test run tasks of node '{}'", releasedTasks, nodeId);
+    }
+}
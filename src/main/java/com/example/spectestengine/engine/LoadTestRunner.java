@@ -0,0 +1,258 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.*;
+
+import com.example.spectestengine.engine.transport.HttpTransport;
+import com.example.spectestengine.engine.transport.TransportRequest;
+import com.example.spectestengine.engine.transport.TransportResponse;
+import com.example.spectestengine.model.LoadModel;
+import com.example.spectestengine.model.LoadProfile;
+import com.example.spectestengine.utils.SpecFormatNormalizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Executes one spec many times for a load run and reports latency percentiles from an HdrHistogram.
+In the OPEN model latency is measured from the moment a request was scheduled to start, not from when
+it was sent, so a stalled target shows up in the percentiles instead of just lowering the request count
+(coordinated omission). Only every 'sampleEvery'-th response goes through the spec's check handlers,
+every response is checked for its status code.
+No request is started after the run deadline and none is allowed to read past it.
+ */
+@Slf4j
+final class LoadTestRunner {
+    private static final ObjectMapper jsonObjectMapper = new ObjectMapper();
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final HttpTransport httpTransport;
+    private final CheckPlan checkPlan;
+    private final Integer expectedStatusCode;
+    private final TransportRequest transportRequest;
+    private final LoadProfile profile;
+    private final long deadlineNanos;
+    private final Histogram latencyMicros = new ConcurrentHistogram(SIGNIFICANT_DIGITS);
+    private final LongAdder completedRequests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder sampledChecks = new LongAdder();
+    private final LongAdder sampledFailures = new LongAdder();
+    private final AtomicReference<ObjectNode> firstFailedSample = new AtomicReference<>();
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+    private final AtomicBoolean stoppedAtDeadline = new AtomicBoolean();
+
+    record LoadResult(String status, ObjectNode report) {
+    }
+
+    /*
+    'deadlineNanos' is a System.nanoTime() value, Long.MAX_VALUE when the run has no deadline.
+     */
+    LoadTestRunner(HttpTransport httpTransport, CheckPlan checkPlan, JsonNode jsonSpecNode,
+                   TransportRequest transportRequest, LoadProfile profile, long deadlineNanos) {
+        this.httpTransport = httpTransport;
+        this.checkPlan = checkPlan;
+        this.expectedStatusCode = jsonSpecNode.has(EXPECTED_STATUS_CODE) ? jsonSpecNode.get(EXPECTED_STATUS_CODE).asInt() : null;
+        this.transportRequest = transportRequest;
+        this.profile = profile;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    LoadResult run() throws InterruptedException {
+        long startedAt = System.nanoTime();
+        if (profile.model() == LoadModel.CLOSED) {
+            runClosed();
+        } else {
+            runOpen(startedAt);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Load run interrupted");
+        }
+        return new LoadResult(resolveStatus(), buildReport(elapsedNanos));
+    }
+
+    private void runClosed() {
+        AtomicInteger issuedRequests = new AtomicInteger();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < Math.min(profile.concurrency(), profile.iterations()); i++) {
+                workers.submit(() -> {
+                    int requestIndex;
+                    while (!Thread.currentThread().isInterrupted() && !isPastDeadline(System.nanoTime())
+                            && (requestIndex = issuedRequests.getAndIncrement()) < profile.iterations()) {
+                        executeRequest(requestIndex, System.nanoTime());
+                    }
+                });
+            }
+        }
+    }
+
+    /*
+    Requests are started on schedule, 'concurrency' only caps how many are in flight;
+    time spent waiting for a free slot counts as latency.
+     */
+    private void runOpen(long startedAt) {
+        long intervalNanos = Math.round(1_000_000_000d / profile.ratePerSecond());
+        Semaphore inFlight = new Semaphore(profile.concurrency());
+
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < profile.iterations(); i++) {
+                long intendedStart = startedAt + i * intervalNanos;
+                if (isPastDeadline(intendedStart)) {
+                    break;
+                }
+                long delayNanos = intendedStart - System.nanoTime();
+                if (delayNanos > 0) {
+                    Thread.sleep(Duration.ofNanos(delayNanos));
+                }
+                inFlight.acquire();
+
+                int requestIndex = i;
+                requests.submit(() -> {
+                    try {
+                        executeRequest(requestIndex, intendedStart);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } catch (InterruptedException interruptedException) {
+            log.info("Open model load run interrupted, stopped sending requests");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void executeRequest(int requestIndex, long intendedStart) {
+        TransportResponse response;
+        try {
+            response = httpTransport.execute(withinDeadline(transportRequest));
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception exception) {
+            recordLatency(intendedStart);
+            failedRequests.increment();
+            firstError.compareAndSet(null, exception.getClass().getSimpleName() + ": " + exception.getMessage());
+            return;
+        }
+
+        recordLatency(intendedStart);
+        if (!isExpectedStatusCode(response.statusCode())) {
+            failedRequests.increment();
+        }
+        if (requestIndex % profile.sampleEvery() == 0) {
+            checkSample(response);
+        }
+    }
+
+    private boolean isPastDeadline(long nanoTime) {
+        if (nanoTime - deadlineNanos < 0) {
+            return false;
+        }
+        stoppedAtDeadline.set(true);
+        return true;
+    }
+
+    private TransportRequest withinDeadline(TransportRequest request) {
+        if (deadlineNanos == Long.MAX_VALUE) {
+            return request;
+        }
+
+        Duration untilDeadline = Duration.ofNanos(Math.max(1_000_000, deadlineNanos - System.nanoTime()));
+        if (untilDeadline.compareTo(request.readTimeout()) >= 0) {
+            return request;
+        }
+        return new TransportRequest(request.url(), request.method(), request.headers(), request.body(),
+                request.contentType(), request.connectTimeout(), untilDeadline);
+    }
+
+    private void recordLatency(long intendedStart) {
+        latencyMicros.recordValue(Math.max(0, (System.nanoTime() - intendedStart) / 1000));
+        completedRequests.increment();
+    }
+
+    private boolean isExpectedStatusCode(int statusCode) {
+        if (expectedStatusCode != null) {
+            return expectedStatusCode == statusCode;
+        }
+        return statusCode < 500;
+    }
+
+    private void checkSample(TransportResponse response) {
+        ObjectNode sampleLog = jsonObjectMapper.createObjectNode();
+        String sampleStatus = PASS;
+        try {
+            JsonNode normalizedResponse = checkPlan.normalizesBody()
+                    ? SpecFormatNormalizer.normalizeToJson(response.bodyAsString())
+                    : MissingNode.getInstance();
+            sampleStatus = checkPlan.run(normalizedResponse, response, sampleLog, sampleStatus);
+        } catch (Exception exception) {
+            sampleStatus = ERROR;
+            sampleLog.put("resultError", TEST_RUN_ERROR);
+        }
+
+        sampledChecks.increment();
+        if (!PASS.equals(sampleStatus)) {
+            sampledFailures.increment();
+            firstFailedSample.compareAndSet(null, sampleLog);
+        }
+    }
+
+    private String resolveStatus() {
+        if (completedRequests.sum() == 0) {
+            return ERROR;
+        }
+        return failedRequests.sum() == 0 && sampledFailures.sum() == 0 ? PASS : FAIL;
+    }
+
+    private ObjectNode buildReport(long elapsedNanos) {
+        long requests = completedRequests.sum();
+        long errors = failedRequests.sum();
+        double elapsedSeconds = elapsedNanos / 1_000_000_000d;
+
+        ObjectNode report = jsonObjectMapper.createObjectNode();
+        report.put(LOAD_MODEL, profile.model().name());
+        report.put(LOAD_REQUESTS, requests);
+        report.put(LOAD_ERRORS, errors);
+        report.put(LOAD_ERROR_RATE, requests == 0 ? 0 : (double) errors / requests);
+        report.put(LOAD_DURATION_MS, elapsedNanos / 1_000_000);
+        report.put(LOAD_THROUGHPUT, elapsedSeconds == 0 ? 0 : requests / elapsedSeconds);
+
+        ObjectNode latency = report.putObject(LOAD_LATENCY_MS);
+        latency.put("p50", percentileMillis(50));
+        latency.put("p90", percentileMillis(90));
+        latency.put("p99", percentileMillis(99));
+        latency.put("p999", percentileMillis(99.9));
+        latency.put("max", latencyMicros.getMaxValue() / 1000d);
+        latency.put("mean", latencyMicros.getMean() / 1000d);
+
+        report.put(LOAD_SAMPLED_CHECKS, sampledChecks.sum());
+        report.put(LOAD_SAMPLED_FAILURES, sampledFailures.sum());
+        if (firstFailedSample.get() != null) {
+            report.set(LOAD_FIRST_FAILED_SAMPLE, firstFailedSample.get());
+        }
+        if (firstError.get() != null) {
+            report.put(LOAD_FIRST_ERROR, firstError.get());
+        }
+        if (stoppedAtDeadline.get()) {
+            report.put(LOAD_STOPPED_AT_DEADLINE, true);
+        }
+        return report;
+    }
+
+    private double percentileMillis(double percentile) {
+        return latencyMicros.getValueAtPercentile(percentile) / 1000d;
+    }
+}
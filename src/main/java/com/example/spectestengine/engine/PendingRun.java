@@ -0,0 +1,59 @@
+package com.example.spectestengine.engine;
+
+import com.example.spectestengine.model.TestRunEntity;
+
+import java.util.concurrent.CompletableFuture;
+
+/*
+Local handle of a submitted run: the future waiting callers block on and the cancellation state.
+A run cancelled before it starts is never executed, a running one has its worker thread interrupted,
+which aborts the HTTP exchange of the JDK transport.
+ */
+final class PendingRun {
+    enum CancelOutcome {NOT_STARTED, RUNNING, ALREADY_FINISHED}
+
+    private enum State {QUEUED, RUNNING, CANCELLED, FINISHED}
+
+    private final CompletableFuture<TestRunEntity> future = new CompletableFuture<>();
+    private State state = State.QUEUED;
+    private boolean cancelRequested;
+    private Thread runner;
+
+    CompletableFuture<TestRunEntity> future() {
+        return future;
+    }
+
+    synchronized boolean start() {
+        if (state != State.QUEUED) {
+            return false;
+        }
+        state = State.RUNNING;
+        runner = Thread.currentThread();
+        return true;
+    }
+
+    synchronized boolean finish() {
+        state = State.FINISHED;
+        runner = null;
+        if (cancelRequested) {
+            // the interrupt was meant for this run only, the worker goes on with the next task
+            Thread.interrupted();
+        }
+        return cancelRequested;
+    }
+
+    synchronized CancelOutcome cancel() {
+        return switch (state) {
+            case QUEUED -> {
+                state = State.CANCELLED;
+                yield CancelOutcome.NOT_STARTED;
+            }
+            case RUNNING -> {
+                cancelRequested = true;
+                runner.interrupt();
+                yield CancelOutcome.RUNNING;
+            }
+            case CANCELLED, FINISHED -> CancelOutcome.ALREADY_FINISHED;
+        };
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.spectestengine.engine;
+
+import java.net.URI;
+import java.util.Locale;
+
+public enum QueueKeyStrategy {
+    URL {
+        @Override
+        public String resolveKey(String url, String queueGroup) {
+            return url;
+        }
+    },
+    ORIGIN {
+        @Override
+        public String resolveKey(String url, String queueGroup) {
+            URI uri = URI.create(url);
+            if (uri.getHost() == null) {
+                return url;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + resolvePort(scheme, uri.getPort());
+        }
+    },
+    HOST {
+        @Override
+        public String resolveKey(String url, String queueGroup) {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase(Locale.ROOT) : url;
+        }
+    },
+    GROUP {
+        @Override
+        public String resolveKey(String url, String queueGroup) {
+            return queueGroup == null ? ORIGIN.resolveKey(url, null) : "group:" + queueGroup;
+        }
+    };
+
+    /*
+    A URL without a host (e.g. opaque 'mailto:' URIs, rejected by the spec validator) is its own key.
+     */
+    public abstract String resolveKey(String url, String queueGroup);
+
+    private static int resolvePort(String scheme, int port) {
+        if (port != -1) {
+            return port;
+        }
+        return "https".equals(scheme) ? 443 : 80;
+    }
+}
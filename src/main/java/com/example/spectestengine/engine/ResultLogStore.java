@@ -0,0 +1,202 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.ORIGINAL_BYTES;
+import static com.example.spectestengine.utils.Constants.RESULT_LOG_BYTES;
+import static com.example.spectestengine.utils.Constants.RESULT_LOG_OFFLOADED;
+import static com.example.spectestengine.utils.Constants.TRUNCATED;
+
+import com.example.spectestengine.model.TestRunEntity;
+import com.example.spectestengine.model.TestRunLogBlobEntity;
+import com.example.spectestengine.repository.TestRunLogBlobRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+Encodes result logs for storage and reads them back.
+
+Every top-level field of a log is capped at 'max-field-bytes': a longer text keeps its beginning
+with a truncation note, a larger object or array is replaced by '{"truncated": true, "originalBytes": n}'.
+A log of at least 'compress-threshold-bytes' is stored gzip compressed, and a compressed log of at least
+'offload-threshold-bytes' goes to test_run_log_blobs, which list views never read.
+A threshold or cap of 0 disables that step.
+ */
+@Slf4j
+@Component
+public class ResultLogStore {
+    private static final String TRUNCATION_NOTE = "...[truncated, %d chars]";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TestRunLogBlobRepository testRunLogBlobRepository;
+    private final int maxFieldBytes;
+    private final int compressThresholdBytes;
+    private final int offloadThresholdBytes;
+
+    public ResultLogStore(TestRunLogBlobRepository testRunLogBlobRepository,
+                          @Value("${spectestengine.result-log.max-field-bytes:65536}") int maxFieldBytes,
+                          @Value("${spectestengine.result-log.compress-threshold-bytes:4096}") int compressThresholdBytes,
+                          @Value("${spectestengine.result-log.offload-threshold-bytes:262144}") int offloadThresholdBytes) {
+        this.testRunLogBlobRepository = testRunLogBlobRepository;
+        this.maxFieldBytes = maxFieldBytes;
+        this.compressThresholdBytes = compressThresholdBytes;
+        this.offloadThresholdBytes = offloadThresholdBytes;
+    }
+
+    /*
+    Sets the inline, compressed or offloaded log of a finished run. The blob of an offloaded log
+    is written by offload(), called in the transaction that saves the run; it may be called again
+    when that transaction is retried.
+     */
+    public void write(TestRunEntity run, ObjectNode resultLog) {
+        byte[] serializedLog = serialize(capFields(resultLog));
+        run.setResultLogBytes(serializedLog.length);
+        run.setTestResultLog(null);
+        run.setCompressedResultLog(null);
+        run.setOffloadedResultLog(null);
+        run.setResultLogOffloaded(false);
+        if (compressThresholdBytes <= 0 || serializedLog.length < compressThresholdBytes) {
+            run.setTestResultLog(new String(serializedLog, StandardCharsets.UTF_8));
+            return;
+        }
+
+        byte[] compressedLog = gzip(serializedLog);
+        if (offloadThresholdBytes > 0 && compressedLog.length >= offloadThresholdBytes) {
+            run.setOffloadedResultLog(compressedLog);
+            run.setResultLogOffloaded(true);
+        } else {
+            run.setCompressedResultLog(compressedLog);
+        }
+    }
+
+    public void offload(TestRunEntity run) {
+        byte[] offloadedLog = run.getOffloadedResultLog();
+        if (offloadedLog == null) {
+            return;
+        }
+
+        testRunLogBlobRepository.save(new TestRunLogBlobEntity(run.getId(), run.getQueuedAt(), offloadedLog));
+        log.debug("Result log of test run id: '{}' offloaded, '{}' compressed bytes", run.getId(), offloadedLog.length);
+    }
+
+    /*
+    Full log, an offloaded one is loaded from its blob.
+     */
+    public JsonNode read(TestRunEntity run) {
+        if (run.isResultLogOffloaded()) {
+            return testRunLogBlobRepository.findById(run.getId())
+                    .map(blob -> parse(gunzip(blob.getData())))
+                    .orElseGet(() -> offloadedMarker(run));
+        }
+        return readInline(run);
+    }
+
+    /*
+    Log for list views: an offloaded log is replaced by a marker with its size,
+    the full log is available by run id.
+     */
+    public JsonNode readSummary(TestRunEntity run) {
+        return run.isResultLogOffloaded() ? offloadedMarker(run) : readInline(run);
+    }
+
+    private JsonNode readInline(TestRunEntity run) {
+        if (run.getCompressedResultLog() != null) {
+            return parse(gunzip(run.getCompressedResultLog()));
+        }
+        return run.getTestResultLog() == null ? null : parse(run.getTestResultLog().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ObjectNode offloadedMarker(TestRunEntity run) {
+        ObjectNode marker = objectMapper.createObjectNode();
+        marker.put(RESULT_LOG_OFFLOADED, true);
+        marker.put(RESULT_LOG_BYTES, run.getResultLogBytes());
+        return marker;
+    }
+
+    /*
+    Only the fields over the cap are replaced, in a shallow copy; the others are shared with the original log.
+     */
+    private ObjectNode capFields(ObjectNode resultLog) {
+        if (maxFieldBytes <= 0) {
+            return resultLog;
+        }
+
+        ObjectNode cappedLog = null;
+        for (Map.Entry<String, JsonNode> field : resultLog.properties()) {
+            JsonNode cappedValue = capField(field.getValue());
+            if (cappedValue != field.getValue()) {
+                if (cappedLog == null) {
+                    cappedLog = objectMapper.createObjectNode();
+                    cappedLog.setAll(resultLog);
+                }
+                cappedLog.set(field.getKey(), cappedValue);
+            }
+        }
+        return cappedLog != null ? cappedLog : resultLog;
+    }
+
+    private JsonNode capField(JsonNode value) {
+        if (value.isTextual() && value.textValue().length() > maxFieldBytes) {
+            String text = value.textValue();
+            return objectMapper.getNodeFactory().textNode(text.substring(0, maxFieldBytes)
+                    + TRUNCATION_NOTE.formatted(text.length() - maxFieldBytes));
+        }
+
+        if (value.isContainerNode() && value.size() > 0) {
+            int fieldBytes = serialize(value).length;
+            if (fieldBytes > maxFieldBytes) {
+                ObjectNode marker = objectMapper.createObjectNode();
+                marker.put(TRUNCATED, true);
+                marker.put(ORIGINAL_BYTES, fieldBytes);
+                return marker;
+            }
+        }
+        return value;
+    }
+
+    private byte[] serialize(JsonNode node) {
+        try {
+            return objectMapper.writeValueAsBytes(node);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private JsonNode parse(byte[] serializedLog) {
+        try {
+            return objectMapper.readTree(serializedLog);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(data);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) {
+        try (InputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return gzipStream.readAllBytes();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.QUEUED;
+import static com.example.spectestengine.utils.Constants.RUNNING;
+
+import com.example.spectestengine.model.TestRunCheckEntity;
+import com.example.spectestengine.model.TestRunEntity;
+import com.example.spectestengine.repository.TestRunCheckRepository;
+import com.example.spectestengine.repository.TestRunRepository;
+import com.example.spectestengine.repository.TestRunTaskRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+Write-behind persistence of finished runs. Workers hand results over and go on with the next run;
+a single writer thread saves them in batches of up to 'batch-size' results, or whatever arrived within
+'max-delay-ms' of the first one, in one transaction. The queued rows of a batch are loaded with one query,
+so the updates need no select each and are sent as JDBC batches together with the check rows.
+
+The buffer holds at most 'capacity' results, a worker blocks when it is full. A worker interrupted while
+blocked (the engine's shutdownNow) hands its result to an unbounded overflow queue the writer drains as well. A batch that fails is
+retried one result at a time, so one bad row does not lose the others. The returned future completes
+once the result is persisted, or with the unsaved result when saving failed.
+
+The rows are locked before saving. A result is discarded when its run is no longer QUEUED or RUNNING
+on the node that executed it (cancelled, or taken over by another node); the future then completes
+with the stored run. A result whose row no longer exists (deleted by retention) is discarded as well and the
+future completes with the unsaved result. Only results whose transaction committed are counted in the statistics rollups.
+ */
+@Slf4j
+@Component
+public class RunResultWriter {
+    private record PendingWrite(TestRunEntity finishedRun, boolean timedRun, CompletableFuture<TestRunEntity> future) {
+    }
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final TestRunRepository testRunRepository;
+    private final TestRunTaskRepository testRunTaskRepository;
+    private final TestRunCheckRepository testRunCheckRepository;
+    private final ResultLogStore resultLogStore;
+    private final RunStatsCollector runStatsCollector;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean durableQueue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<PendingWrite> buffer;
+    private final Queue<PendingWrite> overflow = new ConcurrentLinkedQueue<>();
+    private final Thread writerThread;
+    private final Object writeMonitor = new Object();
+    private long submittedWrites;
+    private long completedWrites;
+    private volatile boolean running = true;
+
+    public RunResultWriter(TestRunRepository testRunRepository, TestRunTaskRepository testRunTaskRepository,
+                           TestRunCheckRepository testRunCheckRepository, ResultLogStore resultLogStore,
+                           RunStatsCollector runStatsCollector, TransactionTemplate transactionTemplate,
+                           @Value("${spectestengine.queue.durable:false}") boolean durableQueue,
+                           @Value("${spectestengine.result-writer.batch-size:500}") int batchSize,
+                           @Value("${spectestengine.result-writer.max-delay-ms:50}") long maxDelayMs,
+                           @Value("${spectestengine.result-writer.capacity:10000}") int capacity) {
+        this.testRunRepository = testRunRepository;
+        this.testRunTaskRepository = testRunTaskRepository;
+        this.testRunCheckRepository = testRunCheckRepository;
+        this.resultLogStore = resultLogStore;
+        this.runStatsCollector = runStatsCollector;
+        this.transactionTemplate = transactionTemplate;
+        this.durableQueue = durableQueue;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.writerThread = Thread.ofPlatform().name("test-run-result-writer").daemon().start(this::writeLoop);
+    }
+
+    /*
+    'timedRun' records the run's duration in the statistics once it is saved (single runs, not load runs).
+     */
+    public CompletableFuture<TestRunEntity> submit(TestRunEntity finishedRun, boolean timedRun) {
+        CompletableFuture<TestRunEntity> future = new CompletableFuture<>();
+        PendingWrite pendingWrite = new PendingWrite(finishedRun, timedRun, future);
+        synchronized (writeMonitor) {
+            submittedWrites++;
+        }
+        try {
+            buffer.put(pendingWrite);
+        } catch (InterruptedException interruptedException) {
+            // the worker pool is shut down with shutdownNow (cancel interrupts are cleared in PendingRun.finish()),
+            // the writer thread picks the result up so nothing is written on this thread with the interrupt set
+            overflow.add(pendingWrite);
+            Thread.currentThread().interrupt();
+        }
+        return future;
+    }
+
+    /*
+    Waits until every result submitted so far is written, at most 'timeout'.
+     */
+    public boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (writeMonitor) {
+            long target = submittedWrites;
+            while (completedWrites < target) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return false;
+                }
+                try {
+                    writeMonitor.wait(remainingMs);
+                } catch (InterruptedException interruptedException) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty() || !overflow.isEmpty()) {
+            try {
+                PendingWrite firstWrite = overflow.poll();
+                if (firstWrite == null) {
+                    firstWrite = buffer.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                }
+                if (firstWrite == null) {
+                    continue;
+                }
+
+                batch.add(firstWrite);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < batchSize) {
+                    if (drainOverflow(batch) + buffer.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remainingNanos = deadline - System.nanoTime();
+                    PendingWrite nextWrite = remainingNanos > 0 ? buffer.poll(remainingNanos, TimeUnit.NANOSECONDS) : null;
+                    if (nextWrite == null) {
+                        break;
+                    }
+                    batch.add(nextWrite);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException interruptedException) {
+                log.warn("Result writer interrupted with '{}' buffered results", buffer.size() + overflow.size());
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private int drainOverflow(List<PendingWrite> batch) {
+        int drained = 0;
+        PendingWrite pendingWrite;
+        while (batch.size() < batchSize && (pendingWrite = overflow.poll()) != null) {
+            batch.add(pendingWrite);
+            drained++;
+        }
+        return drained;
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        Map<Long, TestRunEntity> storedRuns = new ConcurrentHashMap<>();
+        try {
+            recordStats(transactionTemplate.execute(status -> persist(batch, storedRuns)));
+            log.debug("Persisted '{}' test run results in '{}' ns", batch.size(), System.nanoTime() - startedAt);
+        } catch (Exception batchException) {
+            log.warn("Saving a batch of '{}' test run results failed, saving them one by one", batch.size(), batchException);
+            storedRuns.clear();
+            for (PendingWrite pendingWrite : batch) {
+                try {
+                    recordStats(transactionTemplate.execute(status -> persist(List.of(pendingWrite), storedRuns)));
+                } catch (Exception exception) {
+                    log.error("Failed to save result of test run id: '{}'", pendingWrite.finishedRun().getId(), exception);
+                }
+            }
+        } finally {
+            batch.forEach(pendingWrite -> pendingWrite.future().complete(
+                    storedRuns.getOrDefault(pendingWrite.finishedRun().getId(), pendingWrite.finishedRun())));
+            synchronized (writeMonitor) {
+                completedWrites += batch.size();
+                writeMonitor.notifyAll();
+            }
+        }
+    }
+
+    /*
+    Returns the saved results. Results that are not saved go to 'storedRuns' as a detached copy of the stored run,
+    unless the run is gone; their future completes with the unsaved result.
+     */
+    private List<PendingWrite> persist(List<PendingWrite> batch, Map<Long, TestRunEntity> storedRuns) {
+        List<Long> batchRunIds = batch.stream()
+                .map(pendingWrite -> pendingWrite.finishedRun().getId())
+                .toList();
+        // loads the locked rows into the persistence context, so save() below merges without a select per run
+        Map<Long, TestRunEntity> lockedRuns = testRunRepository.findAllByIdInForUpdate(batchRunIds).stream()
+                .collect(Collectors.toMap(TestRunEntity::getId, Function.identity()));
+
+        List<PendingWrite> savedWrites = new ArrayList<>(batch.size());
+        List<Long> runIds = new ArrayList<>(batch.size());
+        List<TestRunCheckEntity> checkResults = new ArrayList<>();
+        for (PendingWrite pendingWrite : batch) {
+            TestRunEntity finishedRun = pendingWrite.finishedRun();
+            TestRunEntity lockedRun = lockedRuns.get(finishedRun.getId());
+            if (lockedRun == null) {
+                // never saved again, that would bring back a run retention already removed
+                log.info("Result of test run id: '{}' discarded, the run no longer exists in the database", finishedRun.getId());
+                continue;
+            }
+            if (!isOwnedBy(lockedRun, finishedRun)) {
+                log.info("Result of test run id: '{}' discarded, the run is '{}' in the database", finishedRun.getId(), lockedRun.getStatus());
+                storedRuns.put(finishedRun.getId(), detachedCopy(lockedRun, finishedRun));
+                continue;
+            }
+
+            savedWrites.add(pendingWrite);
+            runIds.add(finishedRun.getId());
+            resultLogStore.offload(finishedRun);
+            testRunRepository.save(finishedRun);
+            if (finishedRun.getCheckResults() != null) {
+                checkResults.addAll(finishedRun.getCheckResults());
+            }
+        }
+        testRunCheckRepository.saveAll(checkResults);
+
+        if (durableQueue && !runIds.isEmpty()) {
+            testRunTaskRepository.deleteByRunIdIn(runIds);
+        }
+        return savedWrites;
+    }
+
+    private void recordStats(List<PendingWrite> savedWrites) {
+        if (savedWrites == null) {
+            return;
+        }
+        savedWrites.forEach(savedWrite -> runStatsCollector.record(savedWrite.finishedRun(), savedWrite.timedRun()));
+    }
+
+    private static boolean isOwnedBy(TestRunEntity lockedRun, TestRunEntity finishedRun) {
+        return QUEUED.equals(lockedRun.getStatus())
+                || RUNNING.equals(lockedRun.getStatus()) && Objects.equals(lockedRun.getExecutedBy(), finishedRun.getExecutedBy());
+    }
+
+    private static TestRunEntity detachedCopy(TestRunEntity lockedRun, TestRunEntity finishedRun) {
+        return TestRunEntity.builder()
+                .id(lockedRun.getId())
+                .spec(finishedRun.getSpec())
+                .status(lockedRun.getStatus())
+                .executedBy(lockedRun.getExecutedBy())
+                .testResultLog(lockedRun.getTestResultLog())
+                .compressedResultLog(lockedRun.getCompressedResultLog())
+                .resultLogOffloaded(lockedRun.isResultLogOffloaded())
+                .resultLogBytes(lockedRun.getResultLogBytes())
+                .queuedAt(lockedRun.getQueuedAt())
+                .deadlineAt(lockedRun.getDeadlineAt())
+                .startedAt(lockedRun.getStartedAt())
+                .finishedAt(lockedRun.getFinishedAt())
+                .build();
+    }
+
+    /*
+    Runs after the engine is shut down, which flushes the buffer itself; whatever is still
+    buffered is written before the writer thread ends.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        writerThread.join();
+        log.info("Test run result writer stopped");
+    }
+}
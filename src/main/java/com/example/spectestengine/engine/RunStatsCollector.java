@@ -0,0 +1,312 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.CANCELLED;
+import static com.example.spectestengine.utils.Constants.ERROR;
+import static com.example.spectestengine.utils.Constants.EXPIRED;
+import static com.example.spectestengine.utils.Constants.FAIL;
+import static com.example.spectestengine.utils.Constants.PASS;
+
+import com.example.spectestengine.model.TestRunEntity;
+import com.example.spectestengine.model.TestRunStatsEntity;
+import com.example.spectestengine.model.TestRunStatsId;
+import com.example.spectestengine.repository.TestRunStatsRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+
+/*
+Per-spec daily rollups of finished runs. RunResultWriter records each run once its result is saved; recording
+only adds to striped counters (LongAdder, LongAccumulator) and an HdrHistogram Recorder of the bucket,
+without locks or database access. Every 'flush-interval-ms' the counters are drained and merged into
+test_run_stats, so statistics never scan test_runs.
+
+Durations are recorded for single runs that passed or failed; load runs, closed runs and errors are only counted.
+Flips are counted per bucket in the order results are recorded; a delta keeps its first and last outcome, and
+the merge compares the first one with the last_status stored for the spec (the bucket's, or the latest earlier
+bucket's), under the row lock, so flips between runs of different nodes are counted as well. A flush that fails is kept and merged with the next one. Buckets of past days are dropped from memory
+after one more flush, which picks up results recorded while the day ended.
+ */
+@Slf4j
+@Component
+public class RunStatsCollector {
+    private static final int SIGNIFICANT_DIGITS = 2;
+    private static final Comparator<RollupKey> KEY_ORDER = Comparator.comparing(RollupKey::specId)
+            .thenComparing(RollupKey::bucketDate);
+
+    private record RollupKey(Long specId, LocalDate bucketDate) {
+    }
+
+    private static final class Rollup {
+        private final RollupKey key;
+        private final LongAdder passed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder cancelled = new LongAdder();
+        private final LongAdder expired = new LongAdder();
+        private final LongAdder flips = new LongAdder();
+        private final AtomicReference<String> firstStatus = new AtomicReference<>();
+        private final AtomicReference<String> lastStatus = new AtomicReference<>();
+        private final LongAccumulator lastPassAt = new LongAccumulator(Long::max, Long.MIN_VALUE);
+        private final LongAccumulator lastFailAt = new LongAccumulator(Long::max, Long.MIN_VALUE);
+        private final Recorder durationsMs = new Recorder(SIGNIFICANT_DIGITS);
+
+        private Rollup(RollupKey key) {
+            this.key = key;
+        }
+
+        private RollupDelta drain() {
+            return new RollupDelta(passed.sumThenReset(), failed.sumThenReset(), errors.sumThenReset(),
+                    cancelled.sumThenReset(), expired.sumThenReset(), flips.sumThenReset(),
+                    firstStatus.getAndSet(null), lastStatus.getAndSet(null),
+                    lastPassAt.getThenReset(), lastFailAt.getThenReset(), durationsMs.getIntervalHistogram());
+        }
+    }
+
+    private static final class RollupDelta {
+        private long passed;
+        private long failed;
+        private long errors;
+        private long cancelled;
+        private long expired;
+        private long flips;
+        private String firstStatus;
+        private String lastStatus;
+        private long lastPassAt;
+        private long lastFailAt;
+        private final Histogram durationsMs;
+
+        private RollupDelta(long passed, long failed, long errors, long cancelled, long expired, long flips,
+                            String firstStatus, String lastStatus, long lastPassAt, long lastFailAt, Histogram durationsMs) {
+            this.passed = passed;
+            this.failed = failed;
+            this.errors = errors;
+            this.cancelled = cancelled;
+            this.expired = expired;
+            this.flips = flips;
+            this.firstStatus = firstStatus;
+            this.lastStatus = lastStatus;
+            this.lastPassAt = lastPassAt;
+            this.lastFailAt = lastFailAt;
+            this.durationsMs = durationsMs;
+        }
+
+        private boolean isEmpty() {
+            return passed + failed + errors + cancelled + expired == 0;
+        }
+
+        /*
+        'other' was drained after this delta, so its outcomes follow this delta's last one.
+         */
+        private void add(RollupDelta other) {
+            passed += other.passed;
+            failed += other.failed;
+            errors += other.errors;
+            cancelled += other.cancelled;
+            expired += other.expired;
+            flips += other.flips + (isFlip(lastStatus, other.firstStatus) ? 1 : 0);
+            if (firstStatus == null) {
+                firstStatus = other.firstStatus;
+            }
+            if (other.lastStatus != null) {
+                lastStatus = other.lastStatus;
+            }
+            lastPassAt = Math.max(lastPassAt, other.lastPassAt);
+            lastFailAt = Math.max(lastFailAt, other.lastFailAt);
+            durationsMs.add(other.durationsMs);
+        }
+    }
+
+    private final TestRunStatsRepository testRunStatsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<RollupKey, Rollup> rollups = new ConcurrentHashMap<>();
+    private final List<Rollup> retiredRollups = new ArrayList<>();
+    private final Map<RollupKey, RollupDelta> unflushedDeltas = new TreeMap<>(KEY_ORDER);
+
+    public RunStatsCollector(TestRunStatsRepository testRunStatsRepository, TransactionTemplate transactionTemplate) {
+        this.testRunStatsRepository = testRunStatsRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void record(TestRunEntity finishedRun, boolean timedRun) {
+        String status = finishedRun.getStatus();
+        LocalDateTime finishedAt = finishedRun.getFinishedAt();
+        if (status == null || finishedAt == null || finishedRun.getSpec() == null) {
+            return;
+        }
+
+        Long specId = finishedRun.getSpec().getId();
+        Rollup rollup = rollups.computeIfAbsent(new RollupKey(specId, finishedAt.toLocalDate()), Rollup::new);
+        switch (status) {
+            case PASS -> rollup.passed.increment();
+            case FAIL -> rollup.failed.increment();
+            case ERROR -> rollup.errors.increment();
+            case CANCELLED -> rollup.cancelled.increment();
+            case EXPIRED -> rollup.expired.increment();
+            default -> {
+                return;
+            }
+        }
+
+        if (PASS.equals(status) || FAIL.equals(status) || ERROR.equals(status)) {
+            String previousStatus = rollup.lastStatus.getAndSet(status);
+            if (previousStatus == null) {
+                rollup.firstStatus.compareAndSet(null, status);
+            } else if (isFlip(previousStatus, status)) {
+                rollup.flips.increment();
+            }
+            (PASS.equals(status) ? rollup.lastPassAt : rollup.lastFailAt).accumulate(toEpochMillis(finishedAt));
+        }
+
+        if (timedRun && (PASS.equals(status) || FAIL.equals(status)) && finishedRun.getStartedAt() != null) {
+            rollup.durationsMs.recordValue(Math.max(0, Duration.between(finishedRun.getStartedAt(), finishedAt).toMillis()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${spectestengine.stats.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        retiredRollups.forEach(this::drain);
+        retiredRollups.clear();
+        LocalDate today = LocalDate.now();
+        rollups.forEach((key, rollup) -> {
+            drain(rollup);
+            if (key.bucketDate().isBefore(today) && rollups.remove(key, rollup)) {
+                retiredRollups.add(rollup);
+            }
+        });
+        if (unflushedDeltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> unflushedDeltas.forEach(this::merge));
+            log.debug("Flushed '{}' test run statistics buckets", unflushedDeltas.size());
+            unflushedDeltas.clear();
+        } catch (Exception exception) {
+            log.warn("Flushing '{}' test run statistics buckets failed, retrying with the next flush",
+                    unflushedDeltas.size(), exception);
+        }
+    }
+
+    /*
+    Durations of all given buckets in one histogram, for percentiles over a range of days.
+     */
+    public Histogram mergeDurations(List<TestRunStatsEntity> buckets) {
+        Histogram durationsMs = new Histogram(SIGNIFICANT_DIGITS);
+        buckets.forEach(bucket -> durationsMs.add(decode(bucket.getDurationHistogram())));
+        return durationsMs;
+    }
+
+    private void drain(Rollup rollup) {
+        RollupDelta delta = rollup.drain();
+        if (delta.isEmpty()) {
+            return;
+        }
+
+        RollupDelta unflushedDelta = unflushedDeltas.putIfAbsent(rollup.key, delta);
+        if (unflushedDelta != null) {
+            unflushedDelta.add(delta);
+        }
+    }
+
+    private void merge(RollupKey key, RollupDelta delta) {
+        testRunStatsRepository.insertIfAbsent(key.specId(), key.bucketDate());
+        TestRunStatsEntity stats = testRunStatsRepository.findForUpdate(new TestRunStatsId(key.specId(), key.bucketDate()))
+                .orElseThrow();
+        stats.setPassed(stats.getPassed() + delta.passed);
+        stats.setFailed(stats.getFailed() + delta.failed);
+        stats.setErrors(stats.getErrors() + delta.errors);
+        stats.setCancelled(stats.getCancelled() + delta.cancelled);
+        stats.setExpired(stats.getExpired() + delta.expired);
+        String previousStatus = stats.getLastStatus() != null
+                ? stats.getLastStatus()
+                : testRunStatsRepository.findLastStatusBefore(key.specId(), key.bucketDate()).orElse(null);
+        stats.setFlips(stats.getFlips() + delta.flips + (isFlip(previousStatus, delta.firstStatus) ? 1 : 0));
+        if (delta.lastStatus != null) {
+            stats.setLastStatus(delta.lastStatus);
+        }
+        stats.setLastPassAt(latest(stats.getLastPassAt(), delta.lastPassAt));
+        stats.setLastFailAt(latest(stats.getLastFailAt(), delta.lastFailAt));
+        if (delta.durationsMs.getTotalCount() == 0) {
+            return;
+        }
+
+        Histogram durationsMs = decode(stats.getDurationHistogram());
+        durationsMs.add(delta.durationsMs);
+        stats.setDurationHistogram(encode(durationsMs));
+        stats.setDurationP50Ms(durationsMs.getValueAtPercentile(50));
+        stats.setDurationP95Ms(durationsMs.getValueAtPercentile(95));
+        stats.setDurationP99Ms(durationsMs.getValueAtPercentile(99));
+        stats.setDurationMaxMs(durationsMs.getMaxValue());
+    }
+
+    /*
+    PASS against FAIL or ERROR; a missing outcome is never a flip.
+     */
+    private static boolean isFlip(String previousStatus, String status) {
+        return previousStatus != null && status != null && PASS.equals(previousStatus) != PASS.equals(status);
+    }
+
+    private static LocalDateTime latest(LocalDateTime storedAt, long epochMillis) {
+        if (epochMillis == Long.MIN_VALUE) {
+            return storedAt;
+        }
+
+        LocalDateTime recordedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+        return storedAt == null || recordedAt.isAfter(storedAt) ? recordedAt : storedAt;
+    }
+
+    private static long toEpochMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static byte[] encode(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        return Arrays.copyOf(buffer.array(), length);
+    }
+
+    private static Histogram decode(byte[] encoded) {
+        if (encoded == null) {
+            return new Histogram(SIGNIFICANT_DIGITS);
+        }
+
+        try {
+            Histogram histogram = Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(encoded), 0);
+            histogram.setAutoResize(true);
+            return histogram;
+        } catch (DataFormatException exception) {
+            log.warn("Discarding unreadable duration histogram of '{}' bytes", encoded.length);
+            return new Histogram(SIGNIFICANT_DIGITS);
+        }
+    }
+
+    /*
+    Runs after the engine is shut down and its results are written.
+     */
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+}
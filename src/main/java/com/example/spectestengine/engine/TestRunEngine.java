@@ -1,147 +1,635 @@
 package com.example.spectestengine.engine;
 
 import static com.example.spectestengine.utils.Constants.*;
-import static io.restassured.config.EncoderConfig.encoderConfig;
 
-import com.example.spectestengine.engine.handler.BodyCheckHandler;
-import com.example.spectestengine.engine.handler.BodyPathCheckHandler;
-import com.example.spectestengine.engine.handler.ContentTypeCheckHandler;
-import com.example.spectestengine.engine.handler.StatusCodeCheckHandler;
-import com.example.spectestengine.engine.handler.TestCheckHandler;
+import com.example.spectestengine.engine.transport.HttpTransport;
+import com.example.spectestengine.engine.transport.TransportRequest;
+import com.example.spectestengine.engine.transport.TransportResponse;
+import com.example.spectestengine.exception.InvalidSpecException;
+import com.example.spectestengine.model.LoadProfile;
+import com.example.spectestengine.model.RunPriority;
+import com.example.spectestengine.engine.CheckPlan.CheckOutcome;
+import com.example.spectestengine.model.TaskState;
+import com.example.spectestengine.model.TestRunCheckEntity;
 import com.example.spectestengine.model.TestRunEntity;
+import com.example.spectestengine.model.TestRunTaskEntity;
 import com.example.spectestengine.model.TestSpecEntity;
-import com.example.spectestengine.utils.SpecExtractor;
+import com.example.spectestengine.repository.TestRunRepository;
+import com.example.spectestengine.repository.TestRunTaskRepository;
 import com.example.spectestengine.utils.SpecFormatNormalizer;
-import com.example.spectestengine.validation.validator.SpecValidator;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.example.spectestengine.validation.validator.SpecValidator.ValidatedSpec;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.restassured.RestAssured;
-import io.restassured.http.ContentType;
-import io.restassured.response.Response;
-import io.restassured.specification.RequestSpecification;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Component
 public class TestRunEngine {
     private static final ObjectMapper jsonObjectMapper = new ObjectMapper();
     private final TestRunQueue testRunQueue;
+    private final CompiledSpecCache compiledSpecCache;
+    private final ResultLogStore resultLogStore;
+    private final TestRunRepository testRunRepository;
+    private final TestRunTaskRepository testRunTaskRepository;
+    private final RunResultWriter runResultWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final HttpTransport httpTransport;
+    private final Semaphore bulkRunPermits;
+    private final boolean durableQueue;
+    private final Duration drainTimeout;
+    private final long defaultConnectTimeoutMs;
+    private final long defaultReadTimeoutMs;
+    private final long defaultDeadlineMs;
+    private final ExecutorService bulkRunExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, PendingRun> pendingRuns = new ConcurrentHashMap<>();
+    private final Set<Long> loadRunIds = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean shutdown = new AtomicBoolean();
 
-    public TestRunEngine(TestRunQueue testRunQueue) {
+    public TestRunEngine(TestRunQueue testRunQueue, CompiledSpecCache compiledSpecCache, ResultLogStore resultLogStore,
+                         TestRunRepository testRunRepository, TestRunTaskRepository testRunTaskRepository,
+                         RunResultWriter runResultWriter, TransactionTemplate transactionTemplate,
+                         HttpTransport httpTransport,
+                         @Value("${spectestengine.run.bulk-concurrency:64}") int bulkConcurrency,
+                         @Value("${spectestengine.queue.durable:false}") boolean durableQueue,
+                         @Value("${spectestengine.queue.drain-timeout-ms:30000}") long drainTimeoutMs,
+                         @Value("${spectestengine.run.connect-timeout-ms:10000}") long defaultConnectTimeoutMs,
+                         @Value("${spectestengine.run.read-timeout-ms:30000}") long defaultReadTimeoutMs,
+                         @Value("${spectestengine.run.deadline-ms:0}") long defaultDeadlineMs) {
         this.testRunQueue = testRunQueue;
+        this.compiledSpecCache = compiledSpecCache;
+        this.resultLogStore = resultLogStore;
+        this.testRunRepository = testRunRepository;
+        this.testRunTaskRepository = testRunTaskRepository;
+        this.runResultWriter = runResultWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.httpTransport = httpTransport;
+        this.bulkRunPermits = new Semaphore(bulkConcurrency, true);
+        this.durableQueue = durableQueue;
+        this.drainTimeout = Duration.ofMillis(drainTimeoutMs);
+        this.defaultConnectTimeoutMs = defaultConnectTimeoutMs;
+        this.defaultReadTimeoutMs = defaultReadTimeoutMs;
+        this.defaultDeadlineMs = defaultDeadlineMs;
     }
 
-    private final List<TestCheckHandler> checkHandlers = List.of(
-            new StatusCodeCheckHandler(), new ContentTypeCheckHandler(),
-            new BodyPathCheckHandler(), new BodyCheckHandler()
-    );
+    /*
+    'loadProfile' is null for a regular single-request run.
+     */
+    private record PreparedRun(TestRunEntity queuedRun, CompiledSpec compiledSpec, RunPriority priority,
+                               LoadProfile loadProfile, PendingRun pendingRun) {
+    }
+
+    public TestRunEntity submitTestRun(TestSpecEntity specEntity, RunPriority priority) {
+        log.info("Submitting test run for specification ID: '{}' with priority: '{}'", specEntity.getId(), priority);
+        return submit(specEntity, priority, null);
+    }
+
+    /*
+    A load run occupies its queue key like a single run, so it is ordered with the functional runs
+    of the same target. It is kept in memory only, also in durable mode, so it is marked ERROR
+    when the node shuts down before it finished.
+     */
+    public TestRunEntity submitLoadRun(TestSpecEntity specEntity, LoadProfile loadProfile) {
+        log.info("Submitting load run for specification ID: '{}' with profile: '{}'", specEntity.getId(), loadProfile);
+        return submit(specEntity, RunPriority.BULK, loadProfile);
+    }
+
+    private TestRunEntity submit(TestSpecEntity specEntity, RunPriority priority, LoadProfile loadProfile) {
+        var compiledSpec = compiledSpecCache.get(specEntity);
+        PreparedRun preparedRun = prepareRuns(List.of(specEntity), List.of(compiledSpec), priority, loadProfile, false).getFirst();
+        if (loadProfile != null) {
+            loadRunIds.add(preparedRun.queuedRun().getId());
+        }
+        if (durableQueue && loadProfile == null) {
+            log.info("Test run id: '{}' persisted to durable queue for specification ID: '{}'", preparedRun.queuedRun().getId(), specEntity.getId());
+            return preparedRun.queuedRun();
+        }
+
+        try {
+            dispatch(preparedRun);
+        } catch (ResponseStatusException exception) {
+            pendingRuns.remove(preparedRun.queuedRun().getId());
+            loadRunIds.remove(preparedRun.queuedRun().getId());
+            testRunRepository.delete(preparedRun.queuedRun());
+            throw exception;
+        }
+
+        log.info("Test run id: '{}' queued for specification ID: '{}'", preparedRun.queuedRun().getId(), specEntity.getId());
+        return preparedRun.queuedRun();
+    }
+
+    /*
+    Every spec is validated and saved as QUEUED up front, then a feeder thread hands the runs
+    to the TestRunQueue in spec order, so per-URL FIFO is kept. The feeder holds at most
+    'bulk-concurrency' runs in flight across all bulk requests. In durable mode there is no feeder:
+    the tasks are flagged as bulk and a node claims at most 'bulk-concurrency' of them at a time.
+    Results are returned in completion order; runs not finished within waitMs are appended with their QUEUED state.
+     */
+    public List<TestRunEntity> submitTestRuns(List<TestSpecEntity> specEntities, RunPriority priority, long waitMs) {
+        log.info("Submitting '{}' test runs with priority: '{}'", specEntities.size(), priority);
+        List<CompiledSpec> compiledSpecs = specEntities.stream()
+                .map(compiledSpecCache::get)
+                .toList();
+        List<PreparedRun> preparedRuns = prepareRuns(specEntities, compiledSpecs, priority, null, true);
+
+        BlockingQueue<TestRunEntity> finishedRuns = new LinkedBlockingQueue<>();
+        preparedRuns.forEach(preparedRun -> preparedRun.pendingRun().future().thenAccept(finishedRuns::add));
+        if (!durableQueue) {
+            bulkRunExecutor.submit(() -> dispatchWithPermits(preparedRuns));
+        }
+
+        return collectInCompletionOrder(preparedRuns, finishedRuns, waitMs);
+    }
+
+    /*
+    In durable mode the QUEUED runs and their test_run_tasks rows are saved in one transaction,
+    so a run is never visible without the task that will execute it.
+     */
+    private List<PreparedRun> prepareRuns(List<TestSpecEntity> specEntities, List<CompiledSpec> compiledSpecs,
+                                          RunPriority priority, LoadProfile loadProfile, boolean bulk) {
+        LocalDateTime queuedAt = LocalDateTime.now();
+        List<TestRunEntity> runs = new ArrayList<>(specEntities.size());
+        for (int i = 0; i < specEntities.size(); i++) {
+            runs.add(TestRunEntity.builder()
+                    .spec(specEntities.get(i))
+                    .status(QUEUED)
+                    .queuedAt(queuedAt)
+                    .deadlineAt(resolveDeadline(compiledSpecs.get(i).validatedSpec(), queuedAt))
+                    .build());
+        }
+
+        List<TestRunEntity> queuedRuns = transactionTemplate.execute(status -> {
+            List<TestRunEntity> savedRuns = testRunRepository.saveAll(runs);
+            if (durableQueue && loadProfile == null) {
+                testRunTaskRepository.saveAll(buildTasks(savedRuns, compiledSpecs, priority, bulk, queuedAt));
+            }
+            return savedRuns;
+        });
+
+        List<PreparedRun> preparedRuns = new ArrayList<>(queuedRuns.size());
+        for (int i = 0; i < queuedRuns.size(); i++) {
+            PendingRun pendingRun = new PendingRun();
+            pendingRuns.put(queuedRuns.get(i).getId(), pendingRun);
+            preparedRuns.add(new PreparedRun(queuedRuns.get(i), compiledSpecs.get(i), priority, loadProfile, pendingRun));
+        }
+        return preparedRuns;
+    }
+
+    private LocalDateTime resolveDeadline(ValidatedSpec validatedSpec, LocalDateTime queuedAt) {
+        long deadlineMs = validatedSpec.deadlineMs() != null ? validatedSpec.deadlineMs() : defaultDeadlineMs;
+        return deadlineMs > 0 ? queuedAt.plus(Duration.ofMillis(deadlineMs)) : null;
+    }
+
+    private List<TestRunTaskEntity> buildTasks(List<TestRunEntity> queuedRuns, List<CompiledSpec> compiledSpecs,
+                                               RunPriority priority, boolean bulk, LocalDateTime createdAt) {
+        List<TestRunTaskEntity> tasks = new ArrayList<>(queuedRuns.size());
+        for (int i = 0; i < queuedRuns.size(); i++) {
+            ValidatedSpec validatedSpec = compiledSpecs.get(i).validatedSpec();
+            tasks.add(TestRunTaskEntity.builder()
+                    .runId(queuedRuns.get(i).getId())
+                    .queueKey(testRunQueue.resolveKey(validatedSpec.url(), validatedSpec.queueGroup()))
+                    .priority(priority)
+                    .bulk(bulk)
+                    .state(TaskState.PENDING)
+                    .createdAt(createdAt)
+                    .build());
+        }
+        return tasks;
+    }
+
+    /*
+    Called by DurableTestRunQueue for every claimed task. The run is moved from QUEUED to RUNNING
+    for the claiming node; a run that is gone, finished, cancelled or RUNNING on another node
+    only drops its task. A ResponseStatusException from the in-memory queue is rethrown so the task is released.
+     */
+    public void executeClaimedTask(TestRunTaskEntity task) {
+        Optional<TestRunEntity> queuedRun = testRunRepository.findByIdWithSpec(task.getRunId())
+                .filter(run -> QUEUED.equals(run.getStatus()));
+        if (queuedRun.isEmpty() || testRunRepository.markRunning(task.getRunId(), task.getClaimedBy(), QUEUED, RUNNING) == 0) {
+            log.info("Test run id: '{}' is no longer queued, dropping its task", task.getRunId());
+            transactionTemplate.executeWithoutResult(status -> testRunTaskRepository.deleteByRunId(task.getRunId()));
+            return;
+        }
+        queuedRun.get().setStatus(RUNNING);
+        queuedRun.get().setExecutedBy(task.getClaimedBy());
+
+        PendingRun pendingRun = pendingRuns.computeIfAbsent(task.getRunId(), runId -> new PendingRun());
+        CompiledSpec compiledSpec;
+        try {
+            compiledSpec = compiledSpecCache.get(queuedRun.get().getSpec());
+        } catch (InvalidSpecException invalidSpecException) {
+            log.warn("Specification of test run id: '{}' is no longer valid: '{}'", task.getRunId(), invalidSpecException.getMessage());
+            saveAndComplete(closedRun(queuedRun.get(), ERROR, invalidSpecException.getMessage()), pendingRun.future());
+            return;
+        }
+
+        dispatch(new PreparedRun(queuedRun.get(), compiledSpec, task.getPriority(), null, pendingRun));
+    }
+
+    /*
+    In cluster mode a run submitted here may be executed by another node,
+    so waiting callers are completed from the saved result instead.
+     */
+    public void completeRunsFinishedElsewhere() {
+        if (pendingRuns.isEmpty()) {
+            return;
+        }
+
+        testRunRepository.findAllWithSpecByIdInAndStatusNotIn(Set.copyOf(pendingRuns.keySet()), List.of(QUEUED, RUNNING))
+                .forEach(finishedRun -> {
+                    PendingRun pendingRun = pendingRuns.remove(finishedRun.getId());
+                    if (pendingRun != null) {
+                        pendingRun.future().complete(finishedRun);
+                    }
+                });
+    }
+
+    private void dispatch(PreparedRun preparedRun) {
+        ValidatedSpec validatedSpec = preparedRun.compiledSpec().validatedSpec();
+        testRunQueue.submit(validatedSpec.url(), validatedSpec.queueGroup(), preparedRun.priority(), validatedSpec.rateLimit(),
+                throttledNanos -> completeRun(preparedRun, throttledNanos));
+    }
+
+    private void dispatchWithPermits(List<PreparedRun> preparedRuns) {
+        for (int i = 0; i < preparedRuns.size(); i++) {
+            PreparedRun preparedRun = preparedRuns.get(i);
+            try {
+                bulkRunPermits.acquire();
+            } catch (InterruptedException interruptedException) {
+                log.warn("Bulk run dispatch interrupted, '{}' runs left in QUEUED state", preparedRuns.size() - i);
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            preparedRun.pendingRun().future().whenComplete((finishedRun, throwable) -> bulkRunPermits.release());
+            try {
+                dispatch(preparedRun);
+            } catch (ResponseStatusException exception) {
+                log.warn("Test run id: '{}' rejected by queue: '{}'", preparedRun.queuedRun().getId(), exception.getReason());
+                saveAndComplete(closedRun(preparedRun.queuedRun(), ERROR, exception.getReason()), preparedRun.pendingRun().future());
+            }
+        }
+    }
+
+    private List<TestRunEntity> collectInCompletionOrder(List<PreparedRun> preparedRuns,
+                                                         BlockingQueue<TestRunEntity> finishedRuns, long waitMs) {
+        List<TestRunEntity> collectedRuns = new ArrayList<>(preparedRuns.size());
+        Set<Long> collectedRunIds = new HashSet<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+
+        try {
+            while (collectedRuns.size() < preparedRuns.size()) {
+                TestRunEntity finishedRun = finishedRuns.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (finishedRun == null) {
+                    log.info("Timed out after '{}' ms waiting for bulk runs, '{}' tests still in a Queue",
+                            waitMs, preparedRuns.size() - collectedRuns.size());
+                    break;
+                }
+                collectedRuns.add(finishedRun);
+                collectedRunIds.add(finishedRun.getId());
+            }
+        } catch (InterruptedException interruptedException) {
+            log.warn("Interrupted while waiting for bulk run results");
+            Thread.currentThread().interrupt();
+        }
+
+        preparedRuns.stream()
+                .map(PreparedRun::queuedRun)
+                .filter(queuedRun -> !collectedRunIds.contains(queuedRun.getId()))
+                .forEach(collectedRuns::add);
+        return collectedRuns;
+    }
+
+    public Optional<TestRunEntity> awaitResult(Long runId, long waitMs) {
+        PendingRun pendingRun = pendingRuns.get(runId);
+        if (pendingRun == null) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(pendingRun.future().get(waitMs, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException timeoutException) {
+            log.info("Timed out after '{}' ms waiting for test run id: '{}', test still in a Queue", waitMs, runId);
+            return Optional.empty();
+        } catch (ExecutionException | InterruptedException exception) {
+            log.warn("Exception while waiting for test result thread is interrupted exception: '{}'", exception.getMessage());
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Test run failed");
+        }
+    }
+
+    /*
+    A queued run that is cancelled keeps its slot in the queue but is skipped here,
+    and a run whose deadline has passed is saved as EXPIRED without sending the request.
+     */
+    private void completeRun(PreparedRun preparedRun, long throttledNanos) {
+        TestRunEntity queuedRun = preparedRun.queuedRun();
+        PendingRun pendingRun = preparedRun.pendingRun();
+        if (!pendingRun.start()) {
+            log.debug("Test run id: '{}' was cancelled before start, skipped", queuedRun.getId());
+            return;
+        }
+
+        TestRunEntity finishedRun;
+        if (isExpired(queuedRun)) {
+            finishedRun = closedRun(queuedRun, EXPIRED, TEST_RUN_EXPIRED);
+        } else if (preparedRun.loadProfile() != null) {
+            finishedRun = executeLoadRun(queuedRun, preparedRun.compiledSpec(), preparedRun.loadProfile());
+        } else {
+            finishedRun = executeRun(queuedRun, preparedRun.compiledSpec(), throttledNanos);
+        }
+        if (pendingRun.finish()) {
+            log.info("Test run id: '{}' was cancelled while running", queuedRun.getId());
+            finishedRun = closedRun(queuedRun, CANCELLED, TEST_RUN_CANCELLED);
+        }
+        saveAndComplete(finishedRun, pendingRun.future(), preparedRun.loadProfile() == null);
+    }
+
+    private boolean isExpired(TestRunEntity queuedRun) {
+        return queuedRun.getDeadlineAt() != null && !LocalDateTime.now().isBefore(queuedRun.getDeadlineAt());
+    }
+
+    /*
+    Runs tracked by this engine are cancelled in place. Otherwise (durable queue after a restart
+    or a run owned by another node) only a run that is still QUEUED in the database can be cancelled,
+    its task is removed so it is never claimed.
+     */
+    public Optional<TestRunEntity> cancelRun(Long runId) {
+        PendingRun pendingRun = pendingRuns.get(runId);
+        if (pendingRun == null) {
+            cancelQueuedRun(runId);
+            return testRunRepository.findByIdWithSpec(runId);
+        }
+
+        switch (pendingRun.cancel()) {
+            case NOT_STARTED -> testRunRepository.findByIdWithSpec(runId).ifPresent(queuedRun ->
+                    saveAndComplete(closedRun(queuedRun, CANCELLED, TEST_RUN_CANCELLED), pendingRun.future()));
+            case RUNNING -> log.info("Interrupting running test run id: '{}'", runId);
+            case ALREADY_FINISHED -> log.debug("Test run id: '{}' already finished, nothing to cancel", runId);
+        }
+        log.info("Cancel requested for test run id: '{}'", runId);
+        return awaitResult(runId, DEFAULT_RUN_WAIT_MS).or(() -> testRunRepository.findByIdWithSpec(runId));
+    }
 
-    public TestRunEntity buildTestRun(TestSpecEntity specEntity) {
-        log.info("Building test run");
-        JsonNode jsonNode = SpecFormatNormalizer.normalizeToJson(specEntity.getSpec());
-        var validatedSpec = SpecValidator.validate(jsonNode);
+    private void cancelQueuedRun(Long runId) {
+        String resultLog = jsonObjectMapper.createObjectNode().put("resultError", TEST_RUN_CANCELLED).toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            int cancelledRuns = testRunRepository.updateStatusByIdIn(List.of(runId), QUEUED, CANCELLED, resultLog, LocalDateTime.now());
+            if (cancelledRuns > 0 && durableQueue) {
+                testRunTaskRepository.deleteByRunId(runId);
+            }
+        });
+    }
 
-        CompletableFuture<TestRunEntity> future = new CompletableFuture<>();
+    private void saveAndComplete(TestRunEntity finishedRun, CompletableFuture<TestRunEntity> future) {
+        saveAndComplete(finishedRun, future, false);
+    }
 
-        testRunQueue.submit(validatedSpec.url(), () -> {
-            TestRunEntity testRunEntity = executeRun(specEntity, validatedSpec.jsonSpecNode(), validatedSpec.url(), validatedSpec.method());
-            future.complete(testRunEntity);
+    /*
+    The worker only hands the result to the write-behind writer; waiting callers are completed once it is saved.
+    The writer counts saved runs in the statistics rollups, durations only of single runs ('timedRun').
+     */
+    private void saveAndComplete(TestRunEntity finishedRun, CompletableFuture<TestRunEntity> future, boolean timedRun) {
+        runResultWriter.submit(finishedRun, timedRun).thenAccept(savedRun -> {
+            pendingRuns.remove(savedRun.getId());
+            loadRunIds.remove(savedRun.getId());
+            future.complete(savedRun);
         });
+    }
+
+    /*
+    Stops accepting runs and waits up to 'drain-timeout-ms' for queued and running tests.
+    In durable mode unfinished runs keep their tasks and resume after restart; runs without a task
+    (every run without durable mode, load runs in it) cannot be recovered and are marked ERROR
+    instead of staying QUEUED forever.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (!shutdown.compareAndSet(false, true)) {
+            return;
+        }
+
+        log.info("Shutting down test run engine, waiting up to '{}' ms for '{}' pending runs", drainTimeout.toMillis(), pendingRuns.size());
+        bulkRunExecutor.shutdownNow();
+        testRunQueue.shutdownAndDrain(drainTimeout);
+        if (!runResultWriter.flush(drainTimeout)) {
+            log.warn("Not all test run results were written within '{}' ms", drainTimeout.toMillis());
+        }
+
+        Set<Long> unrecoverableRunIds = durableQueue ? Set.copyOf(loadRunIds) : Set.copyOf(pendingRuns.keySet());
+        if (!unrecoverableRunIds.isEmpty()) {
+            int abortedRuns = testRunRepository.updateStatusByIdIn(unrecoverableRunIds, QUEUED, ERROR,
+                    jsonObjectMapper.createObjectNode().put("resultError", TEST_RUN_ABORTED).toString(), LocalDateTime.now());
+            log.warn("'{}' test runs were still queued at shutdown and are marked as '{}'", abortedRuns, ERROR);
+        }
+    }
+
+    private TestRunEntity closedRun(TestRunEntity queuedRun, String status, String reason) {
+        ObjectNode resultLog = jsonObjectMapper.createObjectNode();
+        resultLog.put("resultError", reason);
+        LocalDateTime closedAt = LocalDateTime.now();
 
-        return waitForResult(future, specEntity.getId());
+        TestRunEntity finishedRun = TestRunEntity.builder()
+                .id(queuedRun.getId())
+                .spec(queuedRun.getSpec())
+                .status(status)
+                .queuedAt(queuedRun.getQueuedAt())
+                .deadlineAt(queuedRun.getDeadlineAt())
+                .executedBy(queuedRun.getExecutedBy())
+                .startedAt(closedAt)
+                .finishedAt(closedAt)
+                .build();
+        resultLogStore.write(finishedRun, resultLog);
+        return finishedRun;
     }
 
-    private TestRunEntity executeRun(TestSpecEntity specEntity, JsonNode jsonSpecNode, String url, String method) {
+    /*
+    Phase timings go to the 'timings' object of the result log in nanoseconds. Persistence is not
+    in it, the log is written by that phase; RunResultWriter logs it per batch at debug level instead.
+     */
+    private TestRunEntity executeRun(TestRunEntity queuedRun, CompiledSpec compiledSpec, long throttledNanos) {
+        TestSpecEntity specEntity = queuedRun.getSpec();
+        ValidatedSpec validatedSpec = compiledSpec.validatedSpec();
+        String url = validatedSpec.url();
+        String method = validatedSpec.method();
         LocalDateTime startedAt = LocalDateTime.now();
         String overallTestStatus = PASS;
         ObjectNode resultLog = jsonObjectMapper.createObjectNode();
+        List<CheckOutcome> checkOutcomes = new ArrayList<>();
+        LocalDateTime finishedAt;
+        List<TestRunCheckEntity> checkResults;
 
         try {
             resultLog.put(URL, url);
             resultLog.put(METHOD, method);
-            String format = specEntity.getFormat().getMediaType().toString();
-            String rawSpec = specEntity.getSpec();
-
-            Response response = buildRequestSpecification(jsonSpecNode, rawSpec, format, url, method);
-            JsonNode normalizedResponse = SpecFormatNormalizer.normalizeToJson(response.getBody().asString());
+            if (throttledNanos > 0) {
+                resultLog.put(RATE_LIMIT_WAIT_MS, TimeUnit.NANOSECONDS.toMillis(throttledNanos));
+            }
+            ObjectNode timings = resultLog.putObject(TIMINGS);
+            timings.put(QUEUE_WAIT_NS, Math.max(0, Duration.between(queuedRun.getQueuedAt(), startedAt).toNanos() - throttledNanos));
+            timings.put(RATE_LIMIT_WAIT_NS, throttledNanos);
 
-            for (TestCheckHandler handler : checkHandlers) {
-                overallTestStatus = handler.handle(jsonSpecNode, normalizedResponse, response, resultLog, overallTestStatus);
+            TransportRequest transportRequest = buildTransportRequest(compiledSpec,
+                    resolveReadTimeout(validatedSpec, queuedRun.getDeadlineAt()));
+            TransportResponse response = executeHttpRequest(transportRequest);
+            timings.put(NETWORK_NS, response.timings().networkNanos());
+            if (response.timings().hasPhases()) {
+                timings.put(TIME_TO_FIRST_BYTE_NS, response.timings().timeToFirstByteNanos());
+                timings.put(DOWNLOAD_NS, response.timings().downloadNanos());
             }
 
+            CheckPlan checkPlan = compiledSpec.checkPlan();
+            long normalizationStartedAt = System.nanoTime();
+            JsonNode normalizedResponse = checkPlan.normalizesBody()
+                    ? SpecFormatNormalizer.normalizeToJson(response.bodyAsString())
+                    : MissingNode.getInstance();
+            long checksStartedAt = System.nanoTime();
+            timings.put(NORMALIZATION_NS, checksStartedAt - normalizationStartedAt);
+
+            overallTestStatus = checkPlan.run(normalizedResponse, response, resultLog, overallTestStatus, checkOutcomes);
+            timings.put(CHECKS_NS, System.nanoTime() - checksStartedAt);
+
+            finishedAt = LocalDateTime.now();
+            checkResults = toCheckResults(queuedRun, url, finishedAt, checkOutcomes);
+
         } catch (Exception exception) {
             log.warn("Exception occurred while executing test run", exception);
             overallTestStatus = ERROR;
             resultLog.put("resultError", TEST_RUN_ERROR);
+            finishedAt = LocalDateTime.now();
+            checkResults = List.of();
         }
 
-        LocalDateTime finishedAt = LocalDateTime.now();
-
-        return TestRunEntity.builder()
+        TestRunEntity finishedRun = TestRunEntity.builder()
+                .id(queuedRun.getId())
                 .spec(specEntity)
                 .status(overallTestStatus)
-                .testResultLog(resultLog.toString())
+                .queuedAt(queuedRun.getQueuedAt())
+                .deadlineAt(queuedRun.getDeadlineAt())
+                .executedBy(queuedRun.getExecutedBy())
                 .startedAt(startedAt)
                 .finishedAt(finishedAt)
+                .checkResults(checkResults)
                 .build();
+        resultLogStore.write(finishedRun, resultLog);
+        return finishedRun;
+    }
+
+    private static List<TestRunCheckEntity> toCheckResults(TestRunEntity queuedRun, String url, LocalDateTime finishedAt,
+                                                           List<CheckOutcome> checkOutcomes) {
+        String host = QueueKeyStrategy.HOST.resolveKey(url, null);
+        return checkOutcomes.stream()
+                .map(checkOutcome -> TestRunCheckEntity.builder()
+                        .runId(queuedRun.getId())
+                        .specId(queuedRun.getSpec().getId())
+                        .checkType(checkOutcome.checkType())
+                        .passed(checkOutcome.passed())
+                        .host(host)
+                        .expectedSummary(checkOutcome.expectedSummary())
+                        .receivedSummary(checkOutcome.receivedSummary())
+                        .queuedAt(queuedRun.getQueuedAt())
+                        .finishedAt(finishedAt)
+                        .build())
+                .toList();
     }
 
-    private Response buildRequestSpecification(JsonNode jsonSpecNode, String rawSpec, String format, String url, String method) throws JsonProcessingException {
-        RequestSpecification requestSpecification = RestAssured.given();
+    private TestRunEntity executeLoadRun(TestRunEntity queuedRun, CompiledSpec compiledSpec, LoadProfile loadProfile) {
+        ValidatedSpec validatedSpec = compiledSpec.validatedSpec();
+        LocalDateTime startedAt = LocalDateTime.now();
+        String overallTestStatus;
+        ObjectNode resultLog = jsonObjectMapper.createObjectNode();
+        resultLog.put(URL, validatedSpec.url());
+        resultLog.put(METHOD, validatedSpec.method());
+
+        try {
+            TransportRequest transportRequest = buildTransportRequest(compiledSpec,
+                    resolveReadTimeout(validatedSpec, queuedRun.getDeadlineAt()));
+            LoadTestRunner.LoadResult loadResult = new LoadTestRunner(httpTransport, compiledSpec.checkPlan(),
+                    validatedSpec.jsonSpecNode(), transportRequest, loadProfile, resolveDeadlineNanos(queuedRun.getDeadlineAt())).run();
+            overallTestStatus = loadResult.status();
+            resultLog.set(LOAD_TEST, loadResult.report());
+        } catch (InterruptedException interruptedException) {
+            log.info("Load run id: '{}' interrupted", queuedRun.getId());
+            Thread.currentThread().interrupt();
+            overallTestStatus = ERROR;
+            resultLog.put("resultError", TEST_RUN_ERROR);
+        }
+
+        TestRunEntity finishedRun = TestRunEntity.builder()
+                .id(queuedRun.getId())
+                .spec(queuedRun.getSpec())
+                .status(overallTestStatus)
+                .queuedAt(queuedRun.getQueuedAt())
+                .deadlineAt(queuedRun.getDeadlineAt())
+                .startedAt(startedAt)
+                .finishedAt(LocalDateTime.now())
+                .build();
+        resultLogStore.write(finishedRun, resultLog);
+        return finishedRun;
+    }
 
-        if (jsonSpecNode.has(HEADERS)) {
-            jsonSpecNode.get(HEADERS).properties().forEach(header ->
-                    requestSpecification.header(header.getKey(), header.getValue().asText())
-            );
+    private static long resolveDeadlineNanos(LocalDateTime deadlineAt) {
+        if (deadlineAt == null) {
+            return Long.MAX_VALUE;
         }
+        return System.nanoTime() + Duration.between(LocalDateTime.now(), deadlineAt).toNanos();
+    }
 
-        if (jsonSpecNode.has(BODY)) {
-            String rawBody = SpecExtractor.extractRawBody(rawSpec);
-            requestSpecification
-                    .body(rawBody)
-                    .contentType(format);
+    private Duration resolveConnectTimeout(ValidatedSpec validatedSpec) {
+        return Duration.ofMillis(validatedSpec.connectTimeoutMs() != null ? validatedSpec.connectTimeoutMs() : defaultConnectTimeoutMs);
+    }
 
-            requestSpecification.config(RestAssured.config()
-                    .encoderConfig(encoderConfig().defaultContentCharset("UTF-8")
-                            .encodeContentTypeAs(format, ContentType.TEXT)));
+    /*
+    The read timeout never outlives the run deadline.
+     */
+    private Duration resolveReadTimeout(ValidatedSpec validatedSpec, LocalDateTime deadlineAt) {
+        Duration readTimeout = Duration.ofMillis(validatedSpec.readTimeoutMs() != null ? validatedSpec.readTimeoutMs() : defaultReadTimeoutMs);
+        if (deadlineAt == null) {
+            return readTimeout;
         }
 
-        return executeHttpRequest(requestSpecification, url, method);
+        Duration untilDeadline = Duration.between(LocalDateTime.now(), deadlineAt);
+        if (untilDeadline.compareTo(readTimeout) >= 0) {
+            return readTimeout;
+        }
+        return untilDeadline.toMillis() > 0 ? untilDeadline : Duration.ofMillis(1);
     }
 
-    private Response executeHttpRequest(RequestSpecification requestSpecification, String url, String method) {
-        return switch (method) {
-            case "POST" -> requestSpecification.post(url);
-            case "PUT" -> requestSpecification.put(url);
-            case "PATCH" -> requestSpecification.patch(url);
-            case "DELETE" -> requestSpecification.delete(url);
-            default -> requestSpecification.get(url);
-        };
+    private TransportRequest buildTransportRequest(CompiledSpec compiledSpec, Duration readTimeout) {
+        ValidatedSpec validatedSpec = compiledSpec.validatedSpec();
+        return new TransportRequest(validatedSpec.url(), validatedSpec.method(), compiledSpec.headers(), compiledSpec.body(),
+                compiledSpec.contentType(), resolveConnectTimeout(validatedSpec), readTimeout);
     }
 
-    private TestRunEntity waitForResult(CompletableFuture<TestRunEntity> future, Long specId) {
-        try {
-            return future.get(5, TimeUnit.SECONDS);
-        } catch (TimeoutException timeoutException) {
-            log.info("Timed out waiting for result, test still in a Queue");
-            throw new ResponseStatusException(HttpStatus.ACCEPTED, (
-                    "Your test task in a queue with spec id: '%s', please check test result later").formatted(specId));
-        } catch (ExecutionException | InterruptedException exception) {
-            log.warn("Exception while waiting for test result thread is interrupted exception: '{}'", exception.getMessage());
-            Thread.currentThread().interrupt();
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Test run failed");
-        }
+    private TransportResponse executeHttpRequest(TransportRequest transportRequest) throws IOException, InterruptedException {
+        return httpTransport.execute(transportRequest);
     }
 }
@@ -1,49 +1,380 @@
 package com.example.spectestengine.engine;
 
+import com.example.spectestengine.dto.QueueStatsDTO;
+import com.example.spectestengine.model.RateLimit;
+import com.example.spectestengine.model.RunPriority;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.example.spectestengine.utils.Constants.MAX_QUEUE_SIZE;
 
+/*
+Key-ordered executor: every queue key has a lane with its own FIFO of tasks, and at most 'permits'
+drains of a lane run at once on a bounded set of worker threads. A drain runs a batch of tasks
+and then yields its worker, so one busy key cannot hold a worker forever. Lane state is only changed
+inside ConcurrentHashMap.compute, so a lane is removed atomically as soon as it is empty and idle.
+
+Inside a lane every priority class has its own FIFO and capacity, the next task is picked by
+smooth weighted round-robin between non-empty classes, so interactive runs are not stuck behind a bulk suite.
+
+Requests can be rate limited per host or per queue key with a token bucket. A throttled task keeps
+its lane's drain slot, so the per-key order holds, but gives its worker back and is resumed by a timer
+once its token is due. The time it waited is passed to the task.
+ */
 @Slf4j
 @Component
 public class TestRunQueue {
-    private final Map<String, BlockingQueue<Runnable>> asynchronousQueue = new ConcurrentHashMap<>();
-    private final Map<String, Future<?>> dispatchers = new ConcurrentHashMap<>();
-    private final ExecutorService dispatcherExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private static final int MAX_TASKS_PER_DRAIN = 16;
+    private static final long BUCKET_SWEEP_INTERVAL_SECONDS = 60;
 
-    public void submit(String url, Runnable task) {
-        BlockingQueue<Runnable> synchronizedQueue = asynchronousQueue.computeIfAbsent(url, urlAsKey ->
-                new LinkedBlockingQueue<>(MAX_QUEUE_SIZE));
+    private final Map<String, KeyLane> lanes = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> rateLimitBuckets = new ConcurrentHashMap<>();
+    private final ExecutorService workerExecutor;
+    private final ScheduledExecutorService throttleScheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("test-run-throttle").factory());
+    private final int workerCount;
+    private final QueueKeyStrategy keyStrategy;
+    private final int permitsPerKey;
+    private final Map<String, Integer> permitsOverrides;
+    private final Map<RunPriority, Integer> priorityWeights;
+    private final Map<RunPriority, Integer> priorityCapacities;
+    private final RateLimitScope rateLimitScope;
+    private final double defaultRequestsPerSecond;
+    private final int defaultBurst;
+    private final Map<RunPriority, AtomicInteger> queuedTasks = new EnumMap<>(RunPriority.class);
+    private final AtomicInteger runningTasks = new AtomicInteger();
+    private final AtomicInteger throttledTasks = new AtomicInteger();
+    private final LongAdder evictedKeys = new LongAdder();
+    private volatile boolean accepting = true;
 
-        if (synchronizedQueue.offer(task)) {
-            dispatchers.computeIfAbsent(url, urlAsKey -> dispatcherExecutor.submit(() ->
-                    runDispatcher(synchronizedQueue)));
-        } else {
-            log.warn("Queue is full for URL: '{}' , queue size is '{}'", url, synchronizedQueue.size());
+    public TestRunQueue(@Value("${spectestengine.queue.key-strategy:URL}") QueueKeyStrategy keyStrategy,
+                        @Value("${spectestengine.queue.permits-per-key:1}") int permitsPerKey,
+                        @Value("${spectestengine.queue.permits-overrides:}") List<String> permitsOverrides,
+                        @Value("${spectestengine.queue.workers:256}") int workerCount,
+                        @Value("${spectestengine.queue.priority-weights:INTERACTIVE=8,BULK=2,SCHEDULED=1}") List<String> priorityWeights,
+                        @Value("${spectestengine.queue.priority-capacities:INTERACTIVE=1000,BULK=20000,SCHEDULED=20000}") List<String> priorityCapacities,
+                        @Value("${spectestengine.queue.rate-limit.scope:HOST}") RateLimitScope rateLimitScope,
+                        @Value("${spectestengine.queue.rate-limit.requests-per-second:0}") double defaultRequestsPerSecond,
+                        @Value("${spectestengine.queue.rate-limit.burst:1}") int defaultBurst) {
+        this.keyStrategy = keyStrategy;
+        this.permitsPerKey = permitsPerKey;
+        this.permitsOverrides = parseKeyValues(permitsOverrides);
+        this.priorityWeights = parsePriorityValues(priorityWeights);
+        this.priorityCapacities = parsePriorityValues(priorityCapacities);
+        this.rateLimitScope = rateLimitScope;
+        this.defaultRequestsPerSecond = defaultRequestsPerSecond;
+        this.defaultBurst = defaultBurst;
+        for (RunPriority priority : RunPriority.values()) {
+            queuedTasks.put(priority, new AtomicInteger());
+        }
+        this.workerCount = workerCount;
+        this.workerExecutor = Executors.newFixedThreadPool(workerCount, Thread.ofVirtual().name("test-run-worker-", 0).factory());
+        throttleScheduler.scheduleWithFixedDelay(this::evictIdleBuckets,
+                BUCKET_SWEEP_INTERVAL_SECONDS, BUCKET_SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        log.info("Test run queue keyed by: '{}', permits per key: '{}', overrides: '{}', workers: '{}', weights: '{}', capacities: '{}'",
+                keyStrategy, permitsPerKey, this.permitsOverrides, workerCount, this.priorityWeights, this.priorityCapacities);
+        log.info("Test run rate limit per: '{}', requests per second: '{}', burst: '{}'",
+                rateLimitScope, defaultRequestsPerSecond > 0 ? defaultRequestsPerSecond : "unlimited", defaultBurst);
+    }
+
+    public enum RateLimitScope {HOST, KEY}
+
+    /*
+    A queued test run, 'throttledNanos' is the time it waited for the rate limit.
+     */
+    @FunctionalInterface
+    public interface QueueTask {
+        void run(long throttledNanos);
+    }
+
+    private record QueuedTask(QueueTask task, String bucketKey, RateLimit rateLimit) {
+    }
+
+    private final class KeyLane {
+        private final Map<RunPriority, Queue<QueuedTask>> tasks = new EnumMap<>(RunPriority.class);
+        private final Map<RunPriority, Integer> currentWeights = new EnumMap<>(RunPriority.class);
+        private final int permits;
+        private int activeDrains;
+
+        private KeyLane(int permits) {
+            this.permits = permits;
+            for (RunPriority priority : RunPriority.values()) {
+                tasks.put(priority, new ArrayDeque<>());
+                currentWeights.put(priority, 0);
+            }
+        }
+
+        private QueuedTask poll() {
+            RunPriority selectedPriority = null;
+            int totalWeight = 0;
+            for (RunPriority priority : RunPriority.values()) {
+                if (tasks.get(priority).isEmpty()) {
+                    continue;
+                }
+                int weight = priorityWeights.get(priority);
+                currentWeights.merge(priority, weight, Integer::sum);
+                totalWeight += weight;
+                if (selectedPriority == null || currentWeights.get(priority) > currentWeights.get(selectedPriority)) {
+                    selectedPriority = priority;
+                }
+            }
+
+            if (selectedPriority == null) {
+                return null;
+            }
+            currentWeights.merge(selectedPriority, -totalWeight, Integer::sum);
+            queuedTasks.get(selectedPriority).decrementAndGet();
+            return tasks.get(selectedPriority).poll();
+        }
+    }
+
+    private static final class SubmitOutcome {
+        private boolean rejected;
+        private boolean startDrain;
+    }
+
+    public String resolveKey(String url, String queueGroup) {
+        return keyStrategy.resolveKey(url, queueGroup);
+    }
+
+    public void submit(String url, String queueGroup, RunPriority priority, RateLimit rateLimit, QueueTask task) {
+        if (!accepting) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Test run queue is shutting down, try again later");
+        }
+
+        String queueKey = resolveKey(url, queueGroup);
+        AtomicInteger queuedWithPriority = queuedTasks.get(priority);
+        if (queuedWithPriority.incrementAndGet() > priorityCapacities.get(priority)) {
+            queuedWithPriority.decrementAndGet();
+            log.warn("Queue capacity is exhausted for priority: '{}', capacity is '{}'", priority, priorityCapacities.get(priority));
             throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
-                    "Queue is full for URL: '%s' try again later".formatted(url));
+                    "Queue is full for priority: '%s' try again later".formatted(priority));
         }
+
+        RateLimit effectiveRateLimit = rateLimit.orElse(defaultRequestsPerSecond, defaultBurst);
+        QueuedTask queuedTask = new QueuedTask(task, resolveBucketKey(url, queueKey, effectiveRateLimit), effectiveRateLimit);
+        SubmitOutcome outcome = new SubmitOutcome();
+        lanes.compute(queueKey, (key, lane) -> {
+            KeyLane keyLane = lane == null ? new KeyLane(getPermits(key)) : lane;
+            if (keyLane.tasks.get(priority).size() >= MAX_QUEUE_SIZE) {
+                outcome.rejected = true;
+                return lane;
+            }
+
+            keyLane.tasks.get(priority).add(queuedTask);
+            if (keyLane.activeDrains < keyLane.permits) {
+                keyLane.activeDrains++;
+                outcome.startDrain = true;
+            }
+            return keyLane;
+        });
+
+        if (outcome.rejected) {
+            queuedWithPriority.decrementAndGet();
+            log.warn("Queue is full for key: '{}' and priority: '{}', queue size is '{}'", queueKey, priority, MAX_QUEUE_SIZE);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS,
+                    "Queue is full for key: '%s' try again later".formatted(queueKey));
+        }
+
+        if (outcome.startDrain) {
+            workerExecutor.execute(() -> drain(queueKey));
+        }
+    }
+
+    public QueueStatsDTO getStats() {
+        Map<String, Integer> queuedByPriority = new LinkedHashMap<>();
+        queuedTasks.forEach((priority, queued) -> queuedByPriority.put(priority.name(), queued.get()));
+        int totalQueued = queuedByPriority.values().stream().mapToInt(Integer::intValue).sum();
+
+        return new QueueStatsDTO(keyStrategy.name(), lanes.size(), totalQueued, queuedByPriority, runningTasks.get(),
+                throttledTasks.get(), workerCount, evictedKeys.sum());
     }
 
-    private void runDispatcher(BlockingQueue<Runnable> queue) {
+    /*
+    Stops accepting tasks and lets the workers finish everything already queued, throttled tasks included.
+    Lanes are removed once empty and idle, so the queue is drained when no lane is left.
+    Returns the number of tasks that were neither finished nor started when the timeout expired.
+     */
+    public int shutdownAndDrain(Duration timeout) {
+        accepting = false;
+        long deadline = System.nanoTime() + timeout.toNanos();
         try {
-            while (true) {
-                Runnable task = queue.take();
-                task.run();
+            while (!lanes.isEmpty() && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(50);
             }
         } catch (InterruptedException interruptedException) {
             Thread.currentThread().interrupt();
         }
+
+        int abandonedTasks = getStats().queuedTasks() + throttledTasks.get();
+        workerExecutor.shutdownNow();
+        throttleScheduler.shutdownNow();
+        if (abandonedTasks == 0 && lanes.isEmpty()) {
+            log.info("Test run queue drained");
+        } else {
+            log.warn("Test run queue was not drained within '{}' ms, '{}' tasks abandoned", timeout.toMillis(), abandonedTasks);
+        }
+        return abandonedTasks;
+    }
+
+    private void drain(String queueKey) {
+        int executedTasks = 0;
+        QueuedTask task;
+        while ((task = pollOrRelease(queueKey)) != null) {
+            long throttleNanos = reserveToken(task);
+            if (throttleNanos > 0) {
+                throttle(queueKey, task, throttleNanos);
+                return;
+            }
+            runTask(queueKey, task, 0);
+            if (++executedTasks % MAX_TASKS_PER_DRAIN == 0 && yieldWorker(queueKey)) {
+                return;
+            }
+        }
+    }
+
+    private long reserveToken(QueuedTask task) {
+        if (task.rateLimit().isUnlimited()) {
+            return 0;
+        }
+
+        long[] throttleNanos = new long[1];
+        rateLimitBuckets.compute(task.bucketKey(), (key, bucket) -> {
+            TokenBucket tokenBucket = bucket == null
+                    ? new TokenBucket(task.rateLimit().requestsPerSecond(), task.rateLimit().burst())
+                    : bucket;
+            throttleNanos[0] = tokenBucket.reserve();
+            return tokenBucket;
+        });
+        return throttleNanos[0];
+    }
+
+    private void throttle(String queueKey, QueuedTask task, long throttleNanos) {
+        log.debug("Queue key: '{}' throttled for '{}' ms by rate limit: '{}'", queueKey,
+                TimeUnit.NANOSECONDS.toMillis(throttleNanos), task.bucketKey());
+        throttledTasks.incrementAndGet();
+        throttleScheduler.schedule(() -> {
+            try {
+                workerExecutor.execute(() -> {
+                    runTask(queueKey, task, throttleNanos);
+                    drain(queueKey);
+                });
+                throttledTasks.decrementAndGet();
+            } catch (RejectedExecutionException rejectedExecutionException) {
+                // the queue was shut down while the task waited, it stays counted as throttled so
+                // shutdownAndDrain reports it as abandoned and the engine closes its run
+                log.warn("Throttled task for queue key: '{}' abandoned, the test run queue is shut down", queueKey);
+            }
+        }, throttleNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private String resolveBucketKey(String url, String queueKey, RateLimit rateLimit) {
+        if (rateLimit.isUnlimited()) {
+            return null;
+        }
+
+        String scopeKey = queueKey;
+        if (rateLimitScope == RateLimitScope.HOST) {
+            String host = URI.create(url).getHost();
+            scopeKey = host != null ? host.toLowerCase() : queueKey;
+        }
+        return "%s|%s|%s".formatted(scopeKey, rateLimit.requestsPerSecond(), rateLimit.burst());
+    }
+
+    /*
+    A full bucket behaves exactly like a new one, so it can be dropped.
+     */
+    private void evictIdleBuckets() {
+        rateLimitBuckets.keySet().forEach(bucketKey ->
+                rateLimitBuckets.computeIfPresent(bucketKey, (key, bucket) -> bucket.isFull() ? null : bucket));
+    }
+
+    private boolean yieldWorker(String queueKey) {
+        try {
+            workerExecutor.execute(() -> drain(queueKey));
+            return true;
+        } catch (RejectedExecutionException rejectedExecutionException) {
+            // the executor is shutting down, keep draining this lane on the current worker
+            return false;
+        }
+    }
+
+    private QueuedTask pollOrRelease(String queueKey) {
+        QueuedTask[] nextTask = new QueuedTask[1];
+        lanes.computeIfPresent(queueKey, (key, lane) -> {
+            nextTask[0] = lane.poll();
+            if (nextTask[0] != null) {
+                return lane;
+            }
+
+            lane.activeDrains--;
+            if (lane.activeDrains == 0) {
+                evictedKeys.increment();
+                log.debug("Queue key: '{}' is idle and was evicted", key);
+                return null;
+            }
+            return lane;
+        });
+        return nextTask[0];
+    }
+
+    private void runTask(String queueKey, QueuedTask task, long throttledNanos) {
+        runningTasks.incrementAndGet();
+        try {
+            task.task().run(throttledNanos);
+        } catch (Exception exception) {
+            log.error("Unexpected error in test run task for queue key: '{}'", queueKey, exception);
+        } finally {
+            runningTasks.decrementAndGet();
+        }
+    }
+
+    private int getPermits(String queueKey) {
+        return permitsOverrides.getOrDefault(queueKey, permitsPerKey);
+    }
+
+    private static Map<RunPriority, Integer> parsePriorityValues(List<String> priorityValues) {
+        Map<RunPriority, Integer> parsedValues = new EnumMap<>(RunPriority.class);
+        parseKeyValues(priorityValues).forEach((priority, value) -> parsedValues.put(RunPriority.valueOf(priority), value));
+        for (RunPriority priority : RunPriority.values()) {
+            if (!parsedValues.containsKey(priority)) {
+                throw new IllegalArgumentException("Missing queue value for priority: '%s'".formatted(priority));
+            }
+        }
+        return parsedValues;
+    }
+
+    private static Map<String, Integer> parseKeyValues(List<String> keyValues) {
+        Map<String, Integer> parsedValues = new HashMap<>();
+        for (String keyValue : keyValues) {
+            int separatorIndex = keyValue.lastIndexOf('=');
+            if (separatorIndex <= 0) {
+                throw new IllegalArgumentException("Queue setting must look like 'key=value': '%s'".formatted(keyValue));
+            }
+            parsedValues.put(keyValue.substring(0, separatorIndex).trim(),
+                    Integer.parseInt(keyValue.substring(separatorIndex + 1).trim()));
+        }
+        return parsedValues;
     }
 }
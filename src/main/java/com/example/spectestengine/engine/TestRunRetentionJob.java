@@ -0,0 +1,87 @@
+package com.example.spectestengine.engine;
+
+import com.example.spectestengine.repository.TestRunRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/*
+Keeps the monthly partitions of test_runs, test_run_checks and test_run_log_blobs: the current month and
+'premake-months' ahead exist before runs are queued into them, and a month whose rows already went to a default
+partition gets its partition with those rows moved in. Months wholly older than 'max-age-days' are removed
+at once, runs, checks and offloaded logs together, instead of deleting their rows. An expired partition is dropped,
+or with 'archive' detached and left as a standalone table to be dumped or moved elsewhere. Expired rows left in
+the default partitions are deleted 'default-delete-batch-size' rows per statement, or with 'archive' moved into
+partitions of their month and detached with them.
+ */
+@Slf4j
+@Component
+public class TestRunRetentionJob {
+    private final TestRunRepository testRunRepository;
+    private final int maxAgeDays;
+    private final boolean archive;
+    private final int premakeMonths;
+    private final int defaultDeleteBatchSize;
+
+    public TestRunRetentionJob(TestRunRepository testRunRepository,
+                               @Value("${spectestengine.retention.max-age-days:90}") int maxAgeDays,
+                               @Value("${spectestengine.retention.archive:false}") boolean archive,
+                               @Value("${spectestengine.retention.premake-months:2}") int premakeMonths,
+                               @Value("${spectestengine.retention.default-delete-batch-size:1000}") int defaultDeleteBatchSize) {
+        this.testRunRepository = testRunRepository;
+        this.maxAgeDays = maxAgeDays;
+        this.archive = archive;
+        this.premakeMonths = Math.max(1, premakeMonths);
+        this.defaultDeleteBatchSize = Math.max(1, defaultDeleteBatchSize);
+    }
+
+    @PostConstruct
+    void createPartitions() {
+        int createdPartitions = testRunRepository.createPartitions(premakeMonths);
+        if (createdPartitions > 0) {
+            log.info("Created '{}' test_runs, test_run_checks and test_run_log_blobs partitions", createdPartitions);
+        }
+    }
+
+    @Scheduled(cron = "${spectestengine.retention.cron:0 15 3 * * *}")
+    void run() {
+        try {
+            createPartitions();
+            if (maxAgeDays <= 0) {
+                return;
+            }
+
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(maxAgeDays);
+            List<String> expiredPartitions = testRunRepository.dropExpiredPartitions(cutoff, archive);
+            if (!expiredPartitions.isEmpty()) {
+                log.info("{} test_runs partitions older than '{}': {}", archive ? "Detached" : "Dropped", cutoff, expiredPartitions);
+            }
+            if (!archive) {
+                deleteExpiredDefaultRows(cutoff);
+            }
+        } catch (Exception exception) {
+            log.error("test_runs partition maintenance failed", exception);
+        }
+    }
+
+    /*
+    Every call is a transaction of its own, so the default partitions are never locked for the whole cleanup.
+     */
+    private void deleteExpiredDefaultRows(LocalDateTime cutoff) {
+        long deletedRows = 0;
+        int deletedBatch;
+        do {
+            deletedBatch = testRunRepository.deleteExpiredDefaultRows(cutoff, defaultDeleteBatchSize);
+            deletedRows += deletedBatch;
+        } while (deletedBatch > 0);
+
+        if (deletedRows > 0) {
+            log.info("Deleted '{}' expired rows from the default partitions", deletedRows);
+        }
+    }
+}
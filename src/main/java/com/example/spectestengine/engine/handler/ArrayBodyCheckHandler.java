@@ -0,0 +1,263 @@
+package com.example.spectestengine.engine.handler;
+
+import static com.example.spectestengine.utils.Constants.*;
+
+import com.example.spectestengine.model.ArrayMatchMode;
+import com.example.spectestengine.model.CheckType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Array response checks: 'expectedElementCount' and 'expectedElements' compared by 'arrayMatchMode'.
+'excludedBodyFields' and 'excludeAllOtherBodyFields' apply to every element as they do for 'expectedBody';
+with trimming, a received element is trimmed to the fields of the expected element it is compared with.
+Expected elements are grouped by their field structure and indexed by structural hash within the group,
+so each received element costs one hash of its projected fields per group plus an equality check against
+the few expected elements with the same hash.
+ */
+public class ArrayBodyCheckHandler implements TestCheckHandler {
+    private static final int MAX_LOGGED_INDEXES = 20;
+
+    private record ShapeGroup(BodyProjection projection, Map<Integer, List<Integer>> indexesByHash) {
+    }
+
+    private record ExpectedElements(ArrayMatchMode mode, List<ObjectNode> elements, List<ShapeGroup> shapeGroups) {
+    }
+
+    @Override
+    public CheckType checkType() {
+        return CheckType.ARRAY_BODY;
+    }
+
+    @Override
+    public String expectedSummaryField() {
+        return EXPECTED_ELEMENT_COUNT;
+    }
+
+    @Override
+    public String receivedSummaryField() {
+        return RECEIVED_ELEMENT_COUNT;
+    }
+
+    @Override
+    public TestCheck compile(JsonNode specification) {
+        if (!specification.has(EXPECTED_ELEMENTS) && !specification.has(EXPECTED_ELEMENT_COUNT)) {
+            return null;
+        }
+
+        Integer expectedElementCount = specification.has(EXPECTED_ELEMENT_COUNT) ? specification.get(EXPECTED_ELEMENT_COUNT).asInt() : null;
+        ExpectedElements expectedElements = specification.has(EXPECTED_ELEMENTS) ? compileExpectedElements(specification) : null;
+
+        return (normalizedResponse, response, resultLog, checkStatus) -> {
+            if (!normalizedResponse.isArray()) {
+                resultLog.put(ARRAY_CHECK_ERROR, ERROR);
+                return FAIL;
+            }
+
+            boolean isMatch = true;
+            resultLog.put(RECEIVED_ELEMENT_COUNT, normalizedResponse.size());
+            if (expectedElementCount != null) {
+                resultLog.put(EXPECTED_ELEMENT_COUNT, expectedElementCount);
+                isMatch = normalizedResponse.size() == expectedElementCount;
+            }
+
+            if (expectedElements != null) {
+                resultLog.put(ARRAY_MATCH_MODE, expectedElements.mode().name());
+                isMatch &= expectedElements.mode() == ArrayMatchMode.CONTAINS_ALL
+                        ? containsAll(expectedElements, normalizedResponse, resultLog)
+                        : matchesUnordered(expectedElements, normalizedResponse, resultLog);
+            }
+
+            resultLog.put(ARRAY_CHECK_RESULT, isMatch ? PASS : FAIL);
+            return isMatch ? checkStatus : FAIL;
+        };
+    }
+
+    @Override
+    public boolean needsNormalizedBody() {
+        return true;
+    }
+
+    private ExpectedElements compileExpectedElements(JsonNode specification) {
+        Set<String> excludedFields = new LinkedHashSet<>();
+        if (specification.has(EXCLUDED_BODY_FIELDS)) {
+            specification.get(EXCLUDED_BODY_FIELDS).forEach(exclusionField -> excludedFields.add(exclusionField.asText()));
+        }
+        boolean includeOnlyExpected = specification.path(EXCLUDE_ALL_OTHER_BODY_FIELDS).asBoolean();
+        ArrayMatchMode mode = specification.has(ARRAY_MATCH_MODE)
+                ? ArrayMatchMode.valueOf(specification.get(ARRAY_MATCH_MODE).asText().toUpperCase())
+                : ArrayMatchMode.CONTAINS_ALL;
+
+        List<ObjectNode> elements = new ArrayList<>();
+        Map<JsonNode, Map<Integer, List<Integer>>> indexesByShape = new LinkedHashMap<>();
+        for (JsonNode expectedElement : specification.get(EXPECTED_ELEMENTS)) {
+            ObjectNode element = expectedElement.deepCopy();
+            element.remove(excludedFields);
+            JsonNode shape = includeOnlyExpected ? toShape(element) : NullNode.getInstance();
+            indexesByShape.computeIfAbsent(shape, key -> new HashMap<>())
+                    .computeIfAbsent(element.hashCode(), hash -> new ArrayList<>()).add(elements.size());
+            elements.add(element);
+        }
+
+        Set<String> compiledExcludedFields = Set.copyOf(excludedFields);
+        List<ShapeGroup> shapeGroups = indexesByShape.entrySet().stream()
+                .map(group -> new ShapeGroup(
+                        new BodyProjection(compiledExcludedFields, includeOnlyExpected ? group.getKey() : null),
+                        Map.copyOf(group.getValue())))
+                .toList();
+        return new ExpectedElements(mode, List.copyOf(elements), shapeGroups);
+    }
+
+    /*
+    The field structure of an expected element, which is all BodyProjection reads from a shape: elements with
+    the same structure trim received elements the same way and share one hash index.
+     */
+    private ObjectNode toShape(ObjectNode element) {
+        ObjectNode shape = JsonNodeFactory.instance.objectNode();
+        element.properties().forEach(field -> shape.set(field.getKey(), field.getValue().isObject()
+                ? toShape((ObjectNode) field.getValue())
+                : BooleanNode.TRUE));
+        return shape;
+    }
+
+    private boolean containsAll(ExpectedElements expectedElements, JsonNode receivedArray, ObjectNode resultLog) {
+        List<ObjectNode> elements = expectedElements.elements();
+        boolean[] found = new boolean[elements.size()];
+        int remaining = elements.size();
+
+        for (JsonNode receivedElement : receivedArray) {
+            if (remaining == 0) {
+                break;
+            }
+            for (ShapeGroup shapeGroup : expectedElements.shapeGroups()) {
+                List<Integer> candidates = shapeGroup.indexesByHash().get(shapeGroup.projection().hash(receivedElement));
+                if (candidates == null) {
+                    continue;
+                }
+                for (int candidate : candidates) {
+                    if (!found[candidate] && shapeGroup.projection().matches(elements.get(candidate), receivedElement)) {
+                        found[candidate] = true;
+                        remaining--;
+                    }
+                }
+            }
+        }
+
+        if (remaining > 0) {
+            ArrayNode missingIndexes = resultLog.putArray(MISSING_ELEMENT_INDEXES);
+            for (int i = 0; i < found.length && missingIndexes.size() < MAX_LOGGED_INDEXES; i++) {
+                if (!found[i]) {
+                    missingIndexes.add(i);
+                }
+            }
+        }
+        return remaining == 0;
+    }
+
+    private boolean matchesUnordered(ExpectedElements expectedElements, JsonNode receivedArray, ObjectNode resultLog) {
+        List<ObjectNode> elements = expectedElements.elements();
+        if (receivedArray.size() != elements.size()) {
+            return false;
+        }
+
+        boolean[] consumed = new boolean[elements.size()];
+        for (int receivedIndex = 0; receivedIndex < receivedArray.size(); receivedIndex++) {
+            JsonNode receivedElement = receivedArray.get(receivedIndex);
+            if (!consumeMatch(expectedElements, receivedElement, consumed)) {
+                if (expectedElements.shapeGroups().size() > 1) {
+                    return matchesByAssignment(expectedElements, receivedArray, resultLog);
+                }
+                resultLog.put(UNMATCHED_ELEMENT_INDEX, receivedIndex);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean consumeMatch(ExpectedElements expectedElements, JsonNode receivedElement, boolean[] consumed) {
+        for (ShapeGroup shapeGroup : expectedElements.shapeGroups()) {
+            List<Integer> candidates = shapeGroup.indexesByHash().get(shapeGroup.projection().hash(receivedElement));
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (!consumed[candidate] && shapeGroup.projection().matches(expectedElements.elements().get(candidate), receivedElement)) {
+                    consumed[candidate] = true;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /*
+    Within one shape matching is an equivalence, so taking the first free candidate is exact. Across shapes
+    a received element can match expected elements of several shapes and the one taken first may be needed
+    by a later element, so after a failed first pass the elements are assigned with augmenting paths.
+     */
+    private boolean matchesByAssignment(ExpectedElements expectedElements, JsonNode receivedArray, ObjectNode resultLog) {
+        List<List<Integer>> candidatesByReceived = new ArrayList<>(receivedArray.size());
+        for (JsonNode receivedElement : receivedArray) {
+            candidatesByReceived.add(findMatches(expectedElements, receivedElement));
+        }
+
+        int[] assignedReceived = new int[expectedElements.elements().size()];
+        int[] visitedBy = new int[assignedReceived.length];
+        Arrays.fill(assignedReceived, -1);
+        for (int receivedIndex = 0; receivedIndex < candidatesByReceived.size(); receivedIndex++) {
+            if (!assign(receivedIndex, receivedIndex + 1, candidatesByReceived, assignedReceived, visitedBy)) {
+                resultLog.put(UNMATCHED_ELEMENT_INDEX, receivedIndex);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Integer> findMatches(ExpectedElements expectedElements, JsonNode receivedElement) {
+        List<Integer> matches = new ArrayList<>();
+        for (ShapeGroup shapeGroup : expectedElements.shapeGroups()) {
+            List<Integer> candidates = shapeGroup.indexesByHash().get(shapeGroup.projection().hash(receivedElement));
+            if (candidates == null) {
+                continue;
+            }
+            for (int candidate : candidates) {
+                if (shapeGroup.projection().matches(expectedElements.elements().get(candidate), receivedElement)) {
+                    matches.add(candidate);
+                }
+            }
+        }
+        return matches;
+    }
+
+    /*
+    'visitedBy' marks the expected elements already tried for the received element being assigned ('pass').
+     */
+    private boolean assign(int receivedIndex, int pass, List<List<Integer>> candidatesByReceived, int[] assignedReceived,
+                           int[] visitedBy) {
+        for (int candidate : candidatesByReceived.get(receivedIndex)) {
+            if (visitedBy[candidate] == pass) {
+                continue;
+            }
+            visitedBy[candidate] = pass;
+            if (assignedReceived[candidate] < 0
+                    || assign(assignedReceived[candidate], pass, candidatesByReceived, assignedReceived, visitedBy)) {
+                assignedReceived[candidate] = receivedIndex;
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,48 +2,178 @@ package com.example.spectestengine.engine.handler;
 
 import static com.example.spectestengine.utils.Constants.*;
 
+import com.example.spectestengine.engine.transport.TransportResponse;
+import com.example.spectestengine.exception.InvalidSpecException;
+import com.example.spectestengine.model.CheckType;
+import com.example.spectestengine.utils.ContentHasher;
+import com.example.spectestengine.utils.SpecFormatNormalizer;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.restassured.response.Response;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @Slf4j
 public class BodyCheckHandler implements TestCheckHandler {
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Override
-    public String handle(JsonNode specification, JsonNode normalizedResponse, Response response, ObjectNode resultLog, String handlerStatus) {
-        if (specification.has(EXPECTED_BODY)) {
-            try {
-                JsonNode expectedBody = specification.get(EXPECTED_BODY).deepCopy();
-                JsonNode receivedBody = normalizedResponse.deepCopy();
+    public CheckType checkType() {
+        return CheckType.BODY;
+    }
 
-                validateJsonBodies(expectedBody, receivedBody);
+    @Override
+    public String receivedSummaryField() {
+        return RECEIVED_BODY_HASH;
+    }
 
-                applyExclusions(specification, expectedBody, receivedBody);
-                applyIncludeOnlyExpectedIfNeeded(specification, expectedBody, receivedBody);
+    /*
+    The expected body is copied and stripped of the excluded fields once; the copy is shared by all runs
+    and only read. An expected body that is not an object still compiles and fails every run, as before.
+    By default the log keeps an RFC 6902 diff from the expected to the compared body and a hash of the
+    received body; 'captureBody: true' adds the expected, compared and received bodies. A streamed body
+    has no compared body and is captured as text, which the result log store cuts at its field cap.
+     */
+    @Override
+    public TestCheck compile(JsonNode specification) {
+        if (!specification.has(EXPECTED_BODY)) {
+            return null;
+        }
 
-                resultLog.set(EXPECTED_BODY, expectedBody);
-                resultLog.set(COMPARED_BODY, receivedBody);
+        Set<String> excludedFields = new LinkedHashSet<>();
+        if (specification.has(EXCLUDED_BODY_FIELDS)) {
+            specification.get(EXCLUDED_BODY_FIELDS).forEach(exclusionField -> excludedFields.add(exclusionField.asText()));
+        }
+        Set<String> compiledExcludedFields = Collections.unmodifiableSet(excludedFields);
+        boolean includeOnlyExpected = specification.path(EXCLUDE_ALL_OTHER_BODY_FIELDS).asBoolean();
+        boolean captureBody = specification.path(CAPTURE_BODY).asBoolean();
+
+        JsonNode expectedBody = specification.get(EXPECTED_BODY).deepCopy();
+        if (expectedBody.isObject()) {
+            ((ObjectNode) expectedBody).remove(compiledExcludedFields);
+        }
+        BodyProjection projection = new BodyProjection(compiledExcludedFields, includeOnlyExpected ? expectedBody : null);
+
+        return (normalizedResponse, response, resultLog, checkStatus) -> {
+            if (normalizedResponse.isMissingNode() && isStreamable(response.body())) {
+                return checkStreaming(expectedBody, compiledExcludedFields, includeOnlyExpected, captureBody, response, resultLog, checkStatus);
+            }
+
+            try {
+                if (normalizedResponse.isMissingNode()) {
+                    normalizedResponse = SpecFormatNormalizer.normalizeToJson(response.bodyAsString());
+                }
+                validateJsonBodies(expectedBody, normalizedResponse);
+                resultLog.put(RECEIVED_BODY_HASH, ContentHasher.sha256(response.body()));
+                if (captureBody) {
+                    resultLog.set(EXPECTED_BODY, expectedBody);
+                }
 
-                boolean isMatch = matches(expectedBody, receivedBody);
+                boolean isMatch;
+                if (normalizedResponse.isArray()) {
+                    int matchedElementIndex = findMatchingElement(projection, (ObjectNode) expectedBody, normalizedResponse);
+                    if (matchedElementIndex >= 0) {
+                        resultLog.put(MATCHED_ELEMENT_INDEX, matchedElementIndex);
+                    }
+                    isMatch = matchedElementIndex >= 0;
+                } else {
+                    ObjectNode comparedBody = buildComparedBody(expectedBody, compiledExcludedFields, includeOnlyExpected,
+                            (ObjectNode) normalizedResponse);
+                    isMatch = expectedBody.equals(comparedBody);
+                    if (!isMatch) {
+                        resultLog.set(BODY_DIFF, JsonDiff.diff(expectedBody, comparedBody));
+                    }
+                    if (captureBody) {
+                        resultLog.set(COMPARED_BODY, comparedBody);
+                    }
+                }
                 resultLog.put(BODY_CHECK_RESULT, isMatch ? PASS : FAIL);
 
-                resultLog.set(RECEIVED_BODY, normalizedResponse);
-                return isMatch ? handlerStatus : FAIL;
+                if (captureBody) {
+                    resultLog.set(RECEIVED_BODY, normalizedResponse);
+                }
+                return isMatch ? checkStatus : FAIL;
 
+            } catch (InvalidSpecException invalidSpecException) {
+                return invalidBody(invalidSpecException.getMessage(), resultLog);
             } catch (Exception exception) {
                 log.warn("BodyCheckHandler error: '{}'", exception.getMessage());
                 resultLog.put(BODY_CHECK_ERROR, ERROR);
                 return FAIL;
             }
+        };
+    }
+
+    /*
+    Large JSON responses are matched from the token stream instead of a tree. Their log records where
+    the comparison failed instead of the compared body. Invalid JSON fails the check with the parse error
+    in the log, like a body that cannot be normalized.
+     */
+    private boolean isStreamable(byte[] body) {
+        if (body.length <= STREAMING_BODY_THRESHOLD_BYTES) {
+            return false;
+        }
+
+        for (byte character : body) {
+            if (!Character.isWhitespace(character)) {
+                return character == '{' || character == '[';
+            }
         }
-        return handlerStatus;
+        return false;
+    }
+
+    private String checkStreaming(JsonNode expectedBody, Set<String> excludedFields, boolean includeOnlyExpected, boolean captureBody,
+                                  TransportResponse response, ObjectNode resultLog, String checkStatus) {
+        try {
+            if (!expectedBody.isObject()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Expected body must be a JSON object: '%s'".formatted(expectedBody.asText()));
+            }
+
+            StreamingBodyMatcher.MatchResult matchResult = StreamingBodyMatcher.match(response.body(),
+                    (ObjectNode) expectedBody, excludedFields, includeOnlyExpected);
+
+            if (captureBody) {
+                resultLog.set(EXPECTED_BODY, expectedBody);
+            }
+            resultLog.put(RECEIVED_BODY_HASH, ContentHasher.sha256(response.body()));
+            resultLog.put(RECEIVED_BODY_BYTES, response.body().length);
+            if (matchResult.matchedElementIndex() >= 0) {
+                resultLog.put(MATCHED_ELEMENT_INDEX, matchResult.matchedElementIndex());
+            }
+            if (matchResult.mismatchPath() != null) {
+                resultLog.put(BODY_MISMATCH_PATH, matchResult.mismatchPath());
+            }
+            resultLog.put(BODY_CHECK_RESULT, matchResult.matched() ? PASS : FAIL);
+            if (captureBody) {
+                resultLog.put(RECEIVED_BODY, response.bodyAsString());
+            }
+            return matchResult.matched() ? checkStatus : FAIL;
+
+        } catch (JsonProcessingException jsonProcessingException) {
+            return invalidBody(String.format("Failed to validate JSON spec at line:'%d', column:'%d' error: %s",
+                    jsonProcessingException.getLocation().getLineNr(),
+                    jsonProcessingException.getLocation().getColumnNr(),
+                    jsonProcessingException.getOriginalMessage()), resultLog);
+        } catch (Exception exception) {
+            log.warn("BodyCheckHandler streaming error: '{}'", exception.getMessage());
+            resultLog.put(BODY_CHECK_ERROR, ERROR);
+            return FAIL;
+        }
+    }
+
+    private String invalidBody(String parseError, ObjectNode resultLog) {
+        log.warn("BodyCheckHandler received an invalid body: '{}'", parseError);
+        resultLog.put(BODY_CHECK_ERROR, "%s: %s".formatted(INVALID_JSON_BODY, parseError));
+        resultLog.put(BODY_CHECK_RESULT, FAIL);
+        return FAIL;
     }
 
     private void validateJsonBodies(JsonNode expectedBody, JsonNode receivedBody) {
@@ -70,37 +200,32 @@ public class BodyCheckHandler implements TestCheckHandler {
                 "Response body must be a JSON object or an array of JSON objects: '%s'".formatted(receivedBody.asText()));
     }
 
-    private void applyExclusions(JsonNode specification, JsonNode expectedBody, JsonNode receivedBody) {
-        if (specification.has(EXCLUDED_BODY_FIELDS)) {
-            for (JsonNode exclusionField : specification.get(EXCLUDED_BODY_FIELDS)) {
-                String exclusionFieldName = exclusionField.asText();
-                ((ObjectNode) expectedBody).remove(exclusionFieldName);
-
-                if (receivedBody.isObject()) {
-                    ((ObjectNode) receivedBody).remove(exclusionFieldName);
-                } else {
-                    for (JsonNode receivedBodyArrayElement : receivedBody)
-                        ((ObjectNode) receivedBodyArrayElement).remove(exclusionFieldName);
-                }
+    /*
+    Array elements are compared through their projection in place, without copying or trimming them.
+     */
+    private int findMatchingElement(BodyProjection projection, ObjectNode expectedBody, JsonNode receivedArray) {
+        for (int i = 0; i < receivedArray.size(); i++) {
+            if (projection.matches(expectedBody, receivedArray.get(i))) {
+                return i;
             }
         }
+        return -1;
     }
 
-    private void applyIncludeOnlyExpectedIfNeeded(JsonNode specification, JsonNode expectedBody, JsonNode receivedBody) {
-        if (specification.has(EXCLUDE_ALL_OTHER_BODY_FIELDS) || specification.get(EXCLUDE_ALL_OTHER_BODY_FIELDS).asBoolean()) {
-            if (receivedBody.isObject()) {
-                ObjectNode trimmedBodyToCompare = trimToComparableFields(expectedBody, receivedBody);
-                ((ObjectNode) receivedBody).removeAll();
-                ((ObjectNode) receivedBody).setAll(trimmedBodyToCompare);
-                return;
-            }
-
-            for (JsonNode bodyJsonArrayElement : receivedBody) {
-                ObjectNode trimmedArrayBodyElementToCompare = trimToComparableFields(expectedBody, bodyJsonArrayElement);
-                ((ObjectNode) bodyJsonArrayElement).removeAll();
-                ((ObjectNode) bodyJsonArrayElement).setAll(trimmedArrayBodyElementToCompare);
-            }
+    /*
+    A new top-level object that shares the received children, the received tree is not copied or modified.
+    Excluded fields are never in the expected body, so trimming to it drops them as well.
+     */
+    private ObjectNode buildComparedBody(JsonNode expectedBody, Set<String> excludedFields, boolean includeOnlyExpected,
+                                         ObjectNode receivedBody) {
+        if (includeOnlyExpected) {
+            return trimToComparableFields(expectedBody, receivedBody);
         }
+
+        ObjectNode comparedBody = objectMapper.createObjectNode();
+        comparedBody.setAll(receivedBody);
+        comparedBody.remove(excludedFields);
+        return comparedBody;
     }
 
     private ObjectNode trimToComparableFields(JsonNode expectedBody, JsonNode bodyToTrim) {
@@ -122,19 +247,6 @@ public class BodyCheckHandler implements TestCheckHandler {
         return trimmedToExpectedBody;
     }
 
-    private boolean matches(JsonNode expectedBody, JsonNode actualBody) {
-        if (actualBody.isObject()) {
-            return expectedBody.equals(actualBody);
-        }
-
-        for (JsonNode element : actualBody) {
-            if (expectedBody.equals(element)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     private Iterable<String> getIterable(final Iterator<String> iterator) {
         return () -> iterator;
     }
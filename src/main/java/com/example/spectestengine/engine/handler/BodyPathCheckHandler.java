@@ -2,26 +2,60 @@ package com.example.spectestengine.engine.handler;
 
 import static com.example.spectestengine.utils.Constants.*;
 
+import com.example.spectestengine.exception.InvalidSpecException;
+import com.example.spectestengine.model.CheckType;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.restassured.response.Response;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class BodyPathCheckHandler implements TestCheckHandler {
 
+    private record PathCheck(String expectedBodyPath, JsonPointer pointer, JsonNode expectedBodyValue) {
+    }
+
     @Override
-    public String handle(JsonNode specification, JsonNode normalizedResponse, Response response, ObjectNode resultLog, String handlerStatus) {
-        if (specification.has(EXCEPTED_BODY_PATHS)) {
-            ArrayNode expectedBodyPathCheckArray = resultLog.putArray(EXPECTED_BODY_PATH_CHECK);
-            ArrayNode expectedPaths = (ArrayNode) specification.get(EXCEPTED_BODY_PATHS);
+    public CheckType checkType() {
+        return CheckType.BODY_PATH;
+    }
 
-            boolean allCheckResult = true;
+    /*
+    One row per body path: the path with its expected value, and the value received at that path.
+     */
+    @Override
+    public List<CheckSummary> summarize(ObjectNode resultLog, boolean passed) {
+        List<CheckSummary> summaries = new ArrayList<>();
+        for (JsonNode checkLog : resultLog.path(EXPECTED_BODY_PATH_CHECK)) {
+            summaries.add(new CheckSummary(PASS.equals(checkLog.path(BODY_PATH_VALUE_CHECK_RESULT).asText()),
+                    checkLog.path(EXPECTED_BODY_PATH).asText() + " = " + checkLog.path(EXPECTED_BODY_VALUE),
+                    CheckSummary.toText(checkLog.get(RECEIVED_BODY_VALUE))));
+        }
+        return summaries;
+    }
 
-            for (JsonNode expectedPath : expectedPaths) {
-                String expectedBodyPath = expectedPath.hasNonNull(EXPECTED_BODY_PATH) ? expectedPath.get(EXPECTED_BODY_PATH).asText() : "";
+    @Override
+    public TestCheck compile(JsonNode specification) {
+        if (!specification.has(EXCEPTED_BODY_PATHS)) {
+            return null;
+        }
 
-                JsonNode expectedBodyValue = expectedPath.get(EXPECTED_BODY_VALUE);
-                JsonNode receivedBodyValue = normalizedResponse.at(normalizePathToJsonPointer(expectedBodyPath));
+        List<PathCheck> pathChecks = new ArrayList<>();
+        for (JsonNode expectedPath : specification.get(EXCEPTED_BODY_PATHS)) {
+            String expectedBodyPath = expectedPath.hasNonNull(EXPECTED_BODY_PATH) ? expectedPath.get(EXPECTED_BODY_PATH).asText() : "";
+            pathChecks.add(new PathCheck(expectedBodyPath, compilePointer(expectedBodyPath), expectedPath.get(EXPECTED_BODY_VALUE)));
+        }
+        List<PathCheck> compiledPathChecks = List.copyOf(pathChecks);
+
+        return (normalizedResponse, response, resultLog, checkStatus) -> {
+            ArrayNode expectedBodyPathCheckArray = resultLog.putArray(EXPECTED_BODY_PATH_CHECK);
+            boolean allCheckResult = true;
+
+            for (PathCheck pathCheck : compiledPathChecks) {
+                JsonNode expectedBodyValue = pathCheck.expectedBodyValue();
+                JsonNode receivedBodyValue = normalizedResponse.at(pathCheck.pointer());
 
                 boolean currentCheckResult = receivedBodyValue != null
                         && !receivedBodyValue.isMissingNode()
@@ -32,21 +66,29 @@ public class BodyPathCheckHandler implements TestCheckHandler {
                 }
 
                 ObjectNode checkLog = expectedBodyPathCheckArray.addObject();
-                checkLog.put(EXPECTED_BODY_PATH, expectedBodyPath);
+                checkLog.put(EXPECTED_BODY_PATH, pathCheck.expectedBodyPath());
                 checkLog.put(EXPECTED_BODY_VALUE, expectedBodyValue);
                 checkLog.put(RECEIVED_BODY_VALUE, receivedBodyValue);
                 checkLog.put(BODY_PATH_VALUE_CHECK_RESULT, currentCheckResult ? PASS : FAIL);
             }
 
-            return allCheckResult ? handlerStatus : FAIL;
-        }
-        return handlerStatus;
+            return allCheckResult ? checkStatus : FAIL;
+        };
     }
 
-    private String normalizePathToJsonPointer(String expectedBodyPath) {
-        if (expectedBodyPath == null || expectedBodyPath.isBlank()) {
-            return "";
+    @Override
+    public boolean needsNormalizedBody() {
+        return true;
+    }
+
+    private JsonPointer compilePointer(String expectedBodyPath) {
+        if (expectedBodyPath.isBlank()) {
+            return JsonPointer.empty();
+        }
+        try {
+            return JsonPointer.compile("/" + expectedBodyPath.replace(".", "/"));
+        } catch (IllegalArgumentException illegalArgumentException) {
+            throw new InvalidSpecException("Invalid body path: '%s'".formatted(expectedBodyPath));
         }
-        return "/" + expectedBodyPath.replace(".", "/");
     }
 }
@@ -0,0 +1,87 @@
+package com.example.spectestengine.engine.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+The part of a received object that takes part in a body comparison: top-level excluded fields are dropped
+and, with excludeAllOtherBodyFields, only the fields of 'shape' are kept (recursively for nested objects),
+as BodyCheckHandler's trimming does. Comparison and hashing walk the received node in place, nothing is copied.
+hash() of a projected element equals expected.hashCode() of an equal expected element, so expected elements
+can be looked up by hash.
+ */
+final class BodyProjection {
+    private final Set<String> excludedFields;
+    private final JsonNode shape;
+
+    /*
+    'shape' is null when received objects are not trimmed.
+     */
+    BodyProjection(Set<String> excludedFields, JsonNode shape) {
+        this.excludedFields = excludedFields;
+        this.shape = shape;
+    }
+
+    boolean matches(ObjectNode expected, JsonNode received) {
+        return matchesObject(expected, received, shape, excludedFields);
+    }
+
+    int hash(JsonNode received) {
+        return received.isObject() ? hashObject(received, shape, excludedFields) : received.hashCode();
+    }
+
+    private static boolean matchesObject(ObjectNode expected, JsonNode received, JsonNode shape, Set<String> excludedFields) {
+        if (!received.isObject()) {
+            return false;
+        }
+
+        int keptFields = 0;
+        for (Map.Entry<String, JsonNode> field : received.properties()) {
+            String fieldName = field.getKey();
+            if (excludedFields.contains(fieldName) || (shape != null && !shape.has(fieldName))) {
+                continue;
+            }
+
+            JsonNode expectedChild = expected.get(fieldName);
+            if (expectedChild == null) {
+                return false;
+            }
+
+            JsonNode receivedChild = field.getValue();
+            JsonNode shapeChild = shape == null ? null : shape.get(fieldName);
+            boolean childMatches = shapeChild != null && shapeChild.isObject() && expectedChild.isObject() && receivedChild.isObject()
+                    ? matchesObject((ObjectNode) expectedChild, receivedChild, shapeChild, Set.of())
+                    : expectedChild.equals(receivedChild);
+            if (!childMatches) {
+                return false;
+            }
+            keptFields++;
+        }
+        return keptFields == expected.size();
+    }
+
+    /*
+    Same formula as LinkedHashMap.hashCode(), which ObjectNode.hashCode() delegates to.
+     */
+    private static int hashObject(JsonNode received, JsonNode shape, Set<String> excludedFields) {
+        int hash = 0;
+        for (Map.Entry<String, JsonNode> field : received.properties()) {
+            String fieldName = field.getKey();
+            if (excludedFields.contains(fieldName) || (shape != null && !shape.has(fieldName))) {
+                continue;
+            }
+
+            JsonNode receivedChild = field.getValue();
+            JsonNode shapeChild = shape == null ? null : shape.get(fieldName);
+            int childHash = shapeChild != null && shapeChild.isObject() && receivedChild.isObject()
+                    ? hashObject(receivedChild, shapeChild, Set.of())
+                    : Objects.hashCode(receivedChild);
+            hash += fieldName.hashCode() ^ childHash;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.spectestengine.engine.handler;
+
+import com.example.spectestengine.model.TestRunCheckEntity;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/*
+One test_run_checks row of a check: its outcome with short text summaries of the expected and received values.
+ */
+public record CheckSummary(boolean passed, String expectedSummary, String receivedSummary) {
+
+    public CheckSummary {
+        expectedSummary = truncate(expectedSummary);
+        receivedSummary = truncate(receivedSummary);
+    }
+
+    static CheckSummary of(boolean passed, JsonNode expectedValue, JsonNode receivedValue) {
+        return new CheckSummary(passed, toText(expectedValue), toText(receivedValue));
+    }
+
+    static String toText(JsonNode value) {
+        if (value == null || value.isNull() || value.isMissingNode()) {
+            return null;
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+
+    private static String truncate(String summary) {
+        return summary != null && summary.length() > TestRunCheckEntity.SUMMARY_LENGTH
+                ? summary.substring(0, TestRunCheckEntity.SUMMARY_LENGTH)
+                : summary;
+    }
+}
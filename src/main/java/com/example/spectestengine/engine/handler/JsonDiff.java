@@ -0,0 +1,104 @@
+package com.example.spectestengine.engine.handler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+
+/*
+RFC 6902 patch that turns 'source' into 'target', with 'add', 'remove' and 'replace' operations.
+Objects are diffed field by field and containers of the same type are diffed recursively, so only the
+differing leaves end up in the patch. Arrays are aligned by their common prefix and suffix and the middle
+is diffed position by position, which keeps a single inserted or removed element to one operation.
+ */
+final class JsonDiff {
+    private static final String OP = "op";
+    private static final String PATH = "path";
+    private static final String VALUE = "value";
+
+    private JsonDiff() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static ArrayNode diff(JsonNode source, JsonNode target) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        diff(patch, "", source, target);
+        return patch;
+    }
+
+    private static void diff(ArrayNode patch, String path, JsonNode source, JsonNode target) {
+        if (source.equals(target)) {
+            return;
+        }
+
+        if (source.isObject() && target.isObject()) {
+            diffObjects(patch, path, (ObjectNode) source, (ObjectNode) target);
+        } else if (source.isArray() && target.isArray()) {
+            diffArrays(patch, path, (ArrayNode) source, (ArrayNode) target);
+        } else {
+            addOperation(patch, "replace", path).set(VALUE, target);
+        }
+    }
+
+    private static void diffObjects(ArrayNode patch, String path, ObjectNode source, ObjectNode target) {
+        for (Map.Entry<String, JsonNode> field : source.properties()) {
+            JsonNode targetChild = target.get(field.getKey());
+            if (targetChild == null) {
+                addOperation(patch, "remove", childPath(path, field.getKey()));
+            } else {
+                diff(patch, childPath(path, field.getKey()), field.getValue(), targetChild);
+            }
+        }
+
+        for (Map.Entry<String, JsonNode> field : target.properties()) {
+            if (!source.has(field.getKey())) {
+                addOperation(patch, "add", childPath(path, field.getKey())).set(VALUE, field.getValue());
+            }
+        }
+    }
+
+    /*
+    Operations are applied in order, so removed elements are all removed at the same index.
+     */
+    private static void diffArrays(ArrayNode patch, String path, ArrayNode source, ArrayNode target) {
+        int prefix = 0;
+        int maxPrefix = Math.min(source.size(), target.size());
+        while (prefix < maxPrefix && source.get(prefix).equals(target.get(prefix))) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix && source.get(source.size() - 1 - suffix).equals(target.get(target.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        int sourceMiddle = source.size() - prefix - suffix;
+        int targetMiddle = target.size() - prefix - suffix;
+        int common = Math.min(sourceMiddle, targetMiddle);
+        for (int i = prefix; i < prefix + common; i++) {
+            diff(patch, path + "/" + i, source.get(i), target.get(i));
+        }
+
+        int index = prefix + common;
+        for (int i = common; i < sourceMiddle; i++) {
+            addOperation(patch, "remove", path + "/" + index);
+        }
+        for (int i = common; i < targetMiddle; i++) {
+            addOperation(patch, "add", path + "/" + (prefix + i)).set(VALUE, target.get(prefix + i));
+        }
+    }
+
+    private static ObjectNode addOperation(ArrayNode patch, String op, String path) {
+        ObjectNode operation = patch.addObject();
+        operation.put(OP, op);
+        operation.put(PATH, path);
+        return operation;
+    }
+
+    private static String childPath(String path, String fieldName) {
+        return path + "/" + fieldName.replace("~", "~0").replace("/", "~1");
+    }
+}
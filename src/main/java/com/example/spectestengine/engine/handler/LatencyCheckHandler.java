@@ -0,0 +1,42 @@
+package com.example.spectestengine.engine.handler;
+
+import static com.example.spectestengine.utils.Constants.*;
+
+import com.example.spectestengine.model.CheckType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class LatencyCheckHandler implements TestCheckHandler {
+    @Override
+    public CheckType checkType() {
+        return CheckType.LATENCY;
+    }
+
+    @Override
+    public String expectedSummaryField() {
+        return EXPECTED_MAX_LATENCY_MS;
+    }
+
+    @Override
+    public String receivedSummaryField() {
+        return RECEIVED_LATENCY_MS;
+    }
+
+    @Override
+    public TestCheck compile(JsonNode specification) {
+        if (!specification.has(EXPECTED_MAX_LATENCY_MS)) {
+            return null;
+        }
+
+        double expectedMaxLatencyMs = specification.get(EXPECTED_MAX_LATENCY_MS).asDouble();
+        return (normalizedResponse, response, resultLog, checkStatus) -> {
+            double receivedLatencyMs = response.timings().networkNanos() / 1_000_000d;
+
+            resultLog.put(EXPECTED_MAX_LATENCY_MS, expectedMaxLatencyMs);
+            resultLog.put(RECEIVED_LATENCY_MS, receivedLatencyMs);
+
+            boolean isWithinLimit = receivedLatencyMs <= expectedMaxLatencyMs;
+            resultLog.put(LATENCY_CHECK_RESULT, isWithinLimit ? PASS : FAIL);
+            return isWithinLimit ? checkStatus : FAIL;
+        };
+    }
+}
@@ -2,15 +2,33 @@ package com.example.spectestengine.engine.handler;
 
 import static com.example.spectestengine.utils.Constants.*;
 
+import com.example.spectestengine.model.CheckType;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.restassured.response.Response;
 
 public class StatusCodeCheckHandler implements TestCheckHandler {
     @Override
-    public String handle(JsonNode specification, JsonNode normalizedResponse, Response response, ObjectNode resultLog, String handlerStatus) {
-        if (specification.has(EXPECTED_STATUS_CODE)) {
-            int expectedStatusCode = specification.get(EXPECTED_STATUS_CODE).asInt();
+    public CheckType checkType() {
+        return CheckType.STATUS_CODE;
+    }
+
+    @Override
+    public String expectedSummaryField() {
+        return EXPECTED_STATUS_CODE;
+    }
+
+    @Override
+    public String receivedSummaryField() {
+        return RECEIVED_STATUS_CODE;
+    }
+
+    @Override
+    public TestCheck compile(JsonNode specification) {
+        if (!specification.has(EXPECTED_STATUS_CODE)) {
+            return null;
+        }
+
+        int expectedStatusCode = specification.get(EXPECTED_STATUS_CODE).asInt();
+        return (normalizedResponse, response, resultLog, checkStatus) -> {
             int receivedStatusCode = response.statusCode();
 
             resultLog.put(EXPECTED_STATUS_CODE, expectedStatusCode);
@@ -18,8 +36,7 @@ public class StatusCodeCheckHandler implements TestCheckHandler {
 
             boolean isEqual = expectedStatusCode == receivedStatusCode;
             resultLog.put(STATUS_CODE_CHECK_RESULT, isEqual ? PASS : FAIL);
-            return isEqual ? handlerStatus : FAIL;
-        }
-        return handlerStatus;
+            return isEqual ? checkStatus : FAIL;
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,149 @@
+package com.example.spectestengine.engine.handler;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+Compares an expected body with a JSON response straight from the token stream, with the same result as
+BodyCheckHandler's tree comparison. Fields the comparison does not need are skipped without building nodes.
+The whole document is still read: a later array element that is not an object, invalid JSON after a mismatch
+or a duplicate field (the last value counts, as in a tree) change the result as they would for a tree.
+Mismatch paths are JSON Pointers relative to the compared object, built only on the way back up.
+ */
+final class StreamingBodyMatcher {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /*
+    'mismatchPath' is null on a match and for array responses, 'matchedElementIndex' is -1 unless an
+    element of an array response matched.
+     */
+    record MatchResult(boolean matched, String mismatchPath, int matchedElementIndex) {
+    }
+
+    private StreamingBodyMatcher() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    static MatchResult match(byte[] body, ObjectNode expectedBody, Set<String> excludedFields,
+                             boolean includeOnlyExpected) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                String mismatchPath = matchObject(parser, expectedBody, excludedFields, includeOnlyExpected);
+                return new MatchResult(mismatchPath == null, mismatchPath, -1);
+            }
+
+            if (token == JsonToken.START_ARRAY) {
+                int matchedElementIndex = -1;
+                for (int index = 0; parser.nextToken() != JsonToken.END_ARRAY; index++) {
+                    if (parser.currentToken() != JsonToken.START_OBJECT) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "Each element in the Response body array must be a JSON object");
+                    }
+                    if (matchedElementIndex >= 0) {
+                        parser.skipChildren();
+                    } else if (matchObject(parser, expectedBody, excludedFields, includeOnlyExpected) == null) {
+                        matchedElementIndex = index;
+                    }
+                }
+                return new MatchResult(matchedElementIndex >= 0, null, matchedElementIndex);
+            }
+
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Response body must be a JSON object or an array of JSON objects");
+        }
+    }
+
+    /*
+    The parser is on START_OBJECT and is left on its END_OBJECT. With 'includeOnlyExpected' received fields
+    the expected object does not have are ignored, as trimToComparableFields does; otherwise the field sets
+    must be equal. Results are kept per field name, so a repeated field replaces the result of the earlier one.
+     */
+    private static String matchObject(JsonParser parser, ObjectNode expected, Set<String> excludedFields,
+                                      boolean includeOnlyExpected) throws IOException {
+        int objectDepth = parser.getParsingContext().getNestingDepth();
+        Map<String, String> fieldMismatchPaths = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            JsonToken valueToken = parser.nextToken();
+            JsonNode expectedChild = expected.get(fieldName);
+            if (excludedFields.contains(fieldName) || (expectedChild == null && includeOnlyExpected)) {
+                parser.skipChildren();
+                continue;
+            }
+
+            String childMismatchPath;
+            if (expectedChild == null) {
+                parser.skipChildren();
+                childMismatchPath = "";
+            } else {
+                childMismatchPath = matchValue(parser, valueToken, expectedChild, includeOnlyExpected);
+                skipToDepth(parser, objectDepth);
+            }
+            fieldMismatchPaths.put(fieldName, childMismatchPath == null ? null : toPointer(fieldName) + childMismatchPath);
+        }
+
+        for (String mismatchPath : fieldMismatchPaths.values()) {
+            if (mismatchPath != null) {
+                return mismatchPath;
+            }
+        }
+        return fieldMismatchPaths.size() == expected.size() ? null : "";
+    }
+
+    /*
+    Arrays are compared element by element and in full, the trimming only applies to nested objects.
+     */
+    private static String matchValue(JsonParser parser, JsonToken valueToken, JsonNode expected,
+                                     boolean includeOnlyExpected) throws IOException {
+        if (valueToken == JsonToken.START_OBJECT && expected.isObject()) {
+            return matchObject(parser, (ObjectNode) expected, Set.of(), includeOnlyExpected);
+        }
+
+        if (valueToken == JsonToken.START_ARRAY && expected.isArray()) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (index >= expected.size()) {
+                    return "/" + index;
+                }
+                String elementMismatchPath = matchValue(parser, parser.currentToken(), expected.get(index), false);
+                if (elementMismatchPath != null) {
+                    return "/" + index + elementMismatchPath;
+                }
+                index++;
+            }
+            return index == expected.size() ? null : "/" + index;
+        }
+
+        if (valueToken.isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+
+        JsonNode received = parser.readValueAsTree();
+        return expected.equals(received) ? null : "";
+    }
+
+    /*
+    An array stops being compared at its first mismatch, the rest of the value is still read.
+     */
+    private static void skipToDepth(JsonParser parser, int depth) throws IOException {
+        while (parser.getParsingContext().getNestingDepth() > depth && parser.nextToken() != null) {
+            // tokens of the rest of the mismatched value
+        }
+    }
+
+    private static String toPointer(String fieldName) {
+        return "/" + fieldName.replace("~", "~0").replace("/", "~1");
+    }
+}
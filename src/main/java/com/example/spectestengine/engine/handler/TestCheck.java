@@ -0,0 +1,13 @@
+package com.example.spectestengine.engine.handler;
+
+import com.example.spectestengine.engine.transport.TransportResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/*
+A check compiled for one spec. It is shared by every run of that spec, so it must not keep per-run state.
+ */
+@FunctionalInterface
+public interface TestCheck {
+    String check(JsonNode normalizedResponse, TransportResponse response, ObjectNode resultLog, String checkStatus);
+}
@@ -1,10 +1,45 @@
 package com.example.spectestengine.engine.handler;
 
+import com.example.spectestengine.model.CheckType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.restassured.response.Response;
+
+import java.util.List;
 
 public interface TestCheckHandler {
-    String handle(JsonNode specification, JsonNode normalizedResponse, Response response,
-                  ObjectNode resultLog, String handlerStatus);
-}
\ No newline at end of file
+    CheckType checkType();
+
+    /*
+    Returns null when the specification does not request this check.
+     */
+    TestCheck compile(JsonNode specification);
+
+    /*
+    Whether the check needs the response body as a normalized JsonNode. When no check of a plan does,
+    the checks get a MissingNode and read the raw body from the response themselves.
+     */
+    default boolean needsNormalizedBody() {
+        return false;
+    }
+
+    /*
+    Result log fields summarized as the expected and received values in test_run_checks, null for none.
+     */
+    default String expectedSummaryField() {
+        return null;
+    }
+
+    default String receivedSummaryField() {
+        return null;
+    }
+
+    /*
+    The test_run_checks rows of a check that has run, read from its result log. A check covering
+    several items, such as body paths, returns one row per item instead of the summary fields.
+     */
+    default List<CheckSummary> summarize(ObjectNode resultLog, boolean passed) {
+        return List.of(CheckSummary.of(passed,
+                expectedSummaryField() == null ? null : resultLog.get(expectedSummaryField()),
+                receivedSummaryField() == null ? null : resultLog.get(receivedSummaryField())));
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.spectestengine.engine.transport;
+
+import java.io.IOException;
+
+public interface HttpTransport {
+    TransportResponse execute(TransportRequest request) throws IOException, InterruptedException;
+}
@@ -0,0 +1,115 @@
+package com.example.spectestengine.engine.transport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+One HttpClient is shared by all runs, it keeps a keep-alive connection pool per host,
+reuses TLS sessions and multiplexes HTTP/2 streams over a single connection when the target supports it.
+The connect timeout belongs to the client, so specs with their own 'connectTimeoutMs' get a client
+(and pool) per distinct value, the read timeout bounds the whole exchange of a single request.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "spectestengine.transport", havingValue = "jdk", matchIfMissing = true)
+public class JdkHttpTransport implements HttpTransport {
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(Set.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+
+    private final HttpClient.Version httpVersion;
+    private final Executor clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Duration, HttpClient> httpClients = new ConcurrentHashMap<>();
+
+    public JdkHttpTransport(@Value("${spectestengine.transport.http-version:HTTP_2}") HttpClient.Version httpVersion) {
+        this.httpVersion = httpVersion;
+    }
+
+    private HttpClient getHttpClient(Duration connectTimeout) {
+        return httpClients.computeIfAbsent(connectTimeout, timeout -> HttpClient.newBuilder()
+                .version(httpVersion)
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(clientExecutor)
+                .build());
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) throws IOException, InterruptedException {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(URI.create(request.url()))
+                .timeout(request.readTimeout());
+
+        request.headers().forEach((name, value) -> {
+            if (RESTRICTED_HEADERS.contains(name)) {
+                log.debug("Header: '{}' is managed by the HTTP client and was skipped", name);
+            } else {
+                requestBuilder.setHeader(name, value);
+            }
+        });
+
+        if (request.hasBody()) {
+            requestBuilder.setHeader("Content-Type", request.contentType());
+            requestBuilder.method(request.method(), HttpRequest.BodyPublishers.ofString(request.body(), StandardCharsets.UTF_8));
+        } else {
+            requestBuilder.method(request.method(), HttpRequest.BodyPublishers.noBody());
+        }
+
+        AtomicLong headersReceivedAt = new AtomicLong();
+        long sentAt = System.nanoTime();
+        HttpResponse<byte[]> response = send(getHttpClient(request.connectTimeout()), requestBuilder.build(), responseInfo -> {
+            headersReceivedAt.set(System.nanoTime());
+            return HttpResponse.BodySubscribers.ofByteArray();
+        }, request.readTimeout());
+        long bodyReceivedAt = System.nanoTime();
+
+        return new TransportResponse(
+                response.statusCode(),
+                response.headers().firstValue("Content-Type").orElse(""),
+                response.headers().map(),
+                response.body(),
+                TransportTimings.of(sentAt, headersReceivedAt.get(), bodyReceivedAt));
+    }
+
+    private HttpResponse<byte[]> send(HttpClient httpClient, HttpRequest httpRequest, HttpResponse.BodyHandler<byte[]> bodyHandler,
+                                      Duration readTimeout) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<byte[]>> responseFuture = httpClient.sendAsync(httpRequest, bodyHandler);
+        try {
+            return responseFuture.get(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException timeoutException) {
+            responseFuture.cancel(true);
+            throw new HttpTimeoutException("Response not received within '%s' ms".formatted(readTimeout.toMillis()));
+        } catch (InterruptedException interruptedException) {
+            responseFuture.cancel(true);
+            throw interruptedException;
+        } catch (ExecutionException executionException) {
+            if (executionException.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(executionException.getCause());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.spectestengine.engine.transport;
+
+import static io.restassured.config.EncoderConfig.encoderConfig;
+import static io.restassured.config.HttpClientConfig.httpClientConfig;
+
+import io.restassured.RestAssured;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.http.ContentType;
+import io.restassured.http.Header;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+@Component
+@ConditionalOnProperty(name = "spectestengine.transport", havingValue = "rest-assured")
+public class RestAssuredHttpTransport implements HttpTransport {
+    private final Map<ConfigKey, RestAssuredConfig> configs = new ConcurrentHashMap<>();
+
+    private record ConfigKey(String bodyContentType, Duration connectTimeout, Duration readTimeout) {
+    }
+
+    @Override
+    public TransportResponse execute(TransportRequest request) {
+        RequestSpecification requestSpecification = RestAssured.given();
+        request.headers().forEach(requestSpecification::header);
+        requestSpecification.config(configs.computeIfAbsent(new ConfigKey(request.hasBody() ? request.contentType() : null,
+                request.connectTimeout(), request.readTimeout()), this::buildConfig));
+
+        if (request.hasBody()) {
+            requestSpecification
+                    .body(request.body())
+                    .contentType(request.contentType());
+        }
+
+        long sentAt = System.nanoTime();
+        Response response = requestSpecification.request(request.method(), request.url());
+        byte[] body = response.getBody().asByteArray();
+        long bodyReceivedAt = System.nanoTime();
+
+        return new TransportResponse(
+                response.statusCode(),
+                response.getContentType(),
+                response.getHeaders().asList().stream()
+                        .collect(Collectors.groupingBy(Header::getName,
+                                Collectors.mapping(Header::getValue, Collectors.toList()))),
+                body,
+                // RestAssured reads the whole response before returning, time to first byte cannot be separated
+                TransportTimings.of(sentAt, bodyReceivedAt));
+    }
+
+    private RestAssuredConfig buildConfig(ConfigKey configKey) {
+        RestAssuredConfig config = RestAssured.config()
+                .httpClient(httpClientConfig()
+                        .setParam("http.connection.timeout", (int) configKey.connectTimeout().toMillis())
+                        .setParam("http.socket.timeout", (int) configKey.readTimeout().toMillis()));
+        if (configKey.bodyContentType() != null) {
+            config = config.encoderConfig(encoderConfig().defaultContentCharset("UTF-8")
+                    .encodeContentTypeAs(configKey.bodyContentType(), ContentType.TEXT));
+        }
+        return config;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.spectestengine.engine.transport;
+
+import java.time.Duration;
+import java.util.Map;
+
+public record TransportRequest(String url,
+                               String method,
+                               Map<String, String> headers,
+                               String body,
+                               String contentType,
+                               Duration connectTimeout,
+                               Duration readTimeout) {
+    public boolean hasBody() {
+        return body != null;
+    }
+}
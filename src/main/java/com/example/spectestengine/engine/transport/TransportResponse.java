@@ -0,0 +1,15 @@
+package com.example.spectestengine.engine.transport;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+public record TransportResponse(int statusCode,
+                                String contentType,
+                                Map<String, List<String>> headers,
+                                byte[] body,
+                                TransportTimings timings) {
+    public String bodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.spectestengine.engine.transport;
+
+/*
+Network time of one exchange, measured the same way by every transport: from sending the request until
+the whole body was read, including connect and TLS handshake of a new connection. Neither HTTP client
+reports connect and TLS separately, so they are not split out. Only a transport that sees the response
+headers before the body also splits the exchange into time to first byte and download; for the others
+both phases are null.
+ */
+public record TransportTimings(long networkNanos, Long timeToFirstByteNanos, Long downloadNanos) {
+    public static TransportTimings of(long sentAt, long headersReceivedAt, long bodyReceivedAt) {
+        return new TransportTimings(bodyReceivedAt - sentAt, headersReceivedAt - sentAt, bodyReceivedAt - headersReceivedAt);
+    }
+
+    public static TransportTimings of(long sentAt, long bodyReceivedAt) {
+        return new TransportTimings(bodyReceivedAt - sentAt, null, null);
+    }
+
+    public boolean hasPhases() {
+        return timeToFirstByteNanos != null;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.spectestengine.model;
+
+/*
+How 'expectedElements' is compared with an array response.
+CONTAINS_ALL: every expected element occurs in the response, other elements are allowed.
+UNORDERED: the response holds exactly the expected elements, with the same multiplicity, in any order.
+ */
+public enum ArrayMatchMode {
+    CONTAINS_ALL,
+    UNORDERED
+}
@@ -0,0 +1,25 @@
+package com.example.spectestengine.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+
+public enum CheckType {
+    STATUS_CODE,
+    CONTENT_TYPE,
+    BODY_PATH,
+    BODY,
+    ARRAY_BODY,
+    LATENCY;
+
+    public static CheckType fromName(String checkType) {
+        for (CheckType type : values()) {
+            if (type.name().equalsIgnoreCase(checkType)) {
+                return type;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Unsupported check type: '%s'. Supported check types: %s".formatted(checkType, Arrays.toString(values())));
+    }
+}
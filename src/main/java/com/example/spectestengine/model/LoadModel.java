@@ -0,0 +1,25 @@
+package com.example.spectestengine.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+
+/*
+CLOSED: a fixed number of iterations sent by 'concurrency' workers, each waiting for its response.
+OPEN: requests are started at a target rate for a duration, whether earlier responses arrived or not.
+ */
+public enum LoadModel {
+    CLOSED,
+    OPEN;
+
+    public static LoadModel fromName(String model) {
+        for (LoadModel loadModel : values()) {
+            if (loadModel.name().equalsIgnoreCase(model)) {
+                return loadModel;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Unsupported load model: '%s'. Supported models: %s".formatted(model, Arrays.toString(values())));
+    }
+}
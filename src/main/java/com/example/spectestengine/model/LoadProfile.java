@@ -0,0 +1,48 @@
+package com.example.spectestengine.model;
+
+import static com.example.spectestengine.utils.Constants.*;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+public record LoadProfile(LoadModel model,
+                          int iterations,
+                          int concurrency,
+                          double ratePerSecond,
+                          long durationMs,
+                          int sampleEvery) {
+
+    public static LoadProfile of(String model, Integer iterations, Integer concurrency, Double ratePerSecond,
+                                 Long durationMs, Integer sampleEvery) {
+        LoadModel loadModel = LoadModel.fromName(model);
+        // in the OPEN model concurrency only caps requests in flight, so it defaults to the maximum
+        int resolvedConcurrency = concurrency != null ? concurrency
+                : loadModel == LoadModel.CLOSED ? DEFAULT_LOAD_CONCURRENCY : MAX_LOAD_CONCURRENCY;
+        int resolvedSampleEvery = sampleEvery != null ? sampleEvery : DEFAULT_LOAD_SAMPLE_EVERY;
+        requireInRange("concurrency", resolvedConcurrency, 1, MAX_LOAD_CONCURRENCY);
+        requireInRange("sampleEvery", resolvedSampleEvery, 1, Integer.MAX_VALUE);
+
+        if (loadModel == LoadModel.CLOSED) {
+            if (iterations == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'iterations' is required for the CLOSED load model");
+            }
+            requireInRange("iterations", iterations, 1, MAX_LOAD_ITERATIONS);
+            return new LoadProfile(loadModel, iterations, resolvedConcurrency, 0, 0, resolvedSampleEvery);
+        }
+
+        if (ratePerSecond == null || durationMs == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'ratePerSecond' and 'durationMs' are required for the OPEN load model");
+        }
+        requireInRange("ratePerSecond", ratePerSecond, 0.001, MAX_LOAD_RATE_PER_SECOND);
+        requireInRange("durationMs", durationMs, 1, MAX_LOAD_DURATION_MS);
+        return new LoadProfile(loadModel, (int) Math.ceil(ratePerSecond * durationMs / 1000d),
+                resolvedConcurrency, ratePerSecond, durationMs, resolvedSampleEvery);
+    }
+
+    private static void requireInRange(String name, double value, double min, double max) {
+        if (value < min || value > max) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "'%s' must be between %s and %s, received: '%s'".formatted(name, min, max, value));
+        }
+    }
+}
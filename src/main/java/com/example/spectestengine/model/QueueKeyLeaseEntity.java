@@ -0,0 +1,32 @@
+package com.example.spectestengine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "test_run_key_leases", indexes = {
+        @Index(name = "idx_test_run_key_leases_node", columnList = "node_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QueueKeyLeaseEntity {
+    @Id
+    private String queueKey;
+
+    @Column(nullable = false)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,17 @@
+package com.example.spectestengine.model;
+
+/*
+Rate limit of a spec, a null component falls back to the engine-wide value.
+ */
+public record RateLimit(Double requestsPerSecond, Integer burst) {
+    public static final RateLimit DEFAULT = new RateLimit(null, null);
+
+    public RateLimit orElse(double defaultRequestsPerSecond, int defaultBurst) {
+        return new RateLimit(requestsPerSecond != null ? requestsPerSecond : defaultRequestsPerSecond,
+                burst != null ? burst : defaultBurst);
+    }
+
+    public boolean isUnlimited() {
+        return requestsPerSecond == null || requestsPerSecond <= 0;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.spectestengine.model;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Arrays;
+
+public enum RunPriority {
+    INTERACTIVE,
+    BULK,
+    SCHEDULED;
+
+    public static RunPriority fromName(String priority) {
+        for (RunPriority runPriority : values()) {
+            if (runPriority.name().equalsIgnoreCase(priority)) {
+                return runPriority;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Unsupported priority: '%s'. Supported priorities: %s".formatted(priority, Arrays.toString(values())));
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.spectestengine.model;
+
+public enum TaskState {
+    PENDING,
+    CLAIMED
+}
@@ -0,0 +1,69 @@
+package com.example.spectestengine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/*
+Outcome of one check of a run, written next to the result log so failures can be queried by index.
+Host and finish time are copied from the run, a triage query never joins test_runs.
+ */
+@Entity
+@Table(name = "test_run_checks", indexes = {
+        @Index(name = "idx_test_run_checks_triage", columnList = "check_type, passed, host, finished_at"),
+        @Index(name = "idx_test_run_checks_run_id", columnList = "run_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestRunCheckEntity {
+    public static final int SUMMARY_LENGTH = 255;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_run_checks_seq")
+    @SequenceGenerator(name = "test_run_checks_seq", sequenceName = "test_run_checks_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long runId;
+
+    @Column(nullable = false)
+    private Long specId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private CheckType checkType;
+
+    private boolean passed;
+
+    private String host;
+
+    @Column(length = SUMMARY_LENGTH)
+    private String expectedSummary;
+
+    @Column(length = SUMMARY_LENGTH)
+    private String receivedSummary;
+
+    /*
+    Queue time of the run, the partition key: test_run_checks is partitioned by month like test_runs.
+     */
+    @Column(nullable = false)
+    private LocalDateTime queuedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime finishedAt;
+}
@@ -6,26 +6,36 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.Lob;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Entity
-@Table(name = "test_runs")
+@Table(name = "test_runs", indexes = {
+        @Index(name = "idx_test_runs_status", columnList = "status"),
+        @Index(name = "idx_test_runs_spec_id", columnList = "spec_id, id"),
+        @Index(name = "idx_test_runs_spec_queued_at", columnList = "spec_id, queued_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class TestRunEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "test_runs_seq")
+    @SequenceGenerator(name = "test_runs_seq", sequenceName = "test_runs_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -33,12 +43,47 @@ public class TestRunEntity {
     private TestSpecEntity spec;
 
     private String status;
+    /*
+    Durable queue: node that claimed the run and set it RUNNING, only its result is saved.
+     */
+    private String executedBy;
 
-    @Lob
-    @Column(columnDefinition = "text")
+    /*
+    The result log is kept in one of three places: inline jsonb when small, gzip compressed JSON
+    above 'compress-threshold-bytes', or test_run_log_blobs above 'offload-threshold-bytes'.
+     */
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
     private String testResultLog;
 
+    @Column(columnDefinition = "bytea")
+    private byte[] compressedResultLog;
+
+    private boolean resultLogOffloaded;
+
+    private Integer resultLogBytes;
+
+    /*
+    Compressed log waiting to be written to test_run_log_blobs together with the run.
+     */
+    @Transient
+    private byte[] offloadedResultLog;
+
+    /*
+    Partition key of test_runs (monthly ranges), set when the run is queued and never changed.
+     */
+    @Column(nullable = false)
+    private LocalDateTime queuedAt;
+
+    private LocalDateTime deadlineAt;
+
     private LocalDateTime startedAt;
 
     private LocalDateTime finishedAt;
-}
\ No newline at end of file
+
+    /*
+    Check outcomes of a finished run, saved to test_run_checks together with the run.
+     */
+    @Transient
+    private List<TestRunCheckEntity> checkResults;
+}
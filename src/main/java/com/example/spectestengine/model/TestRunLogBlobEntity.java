@@ -0,0 +1,36 @@
+package com.example.spectestengine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/*
+Gzip compressed result log of a run that is too large to be kept in test_runs,
+it is only read when the detailed log of that run is requested.
+ */
+@Entity
+@Table(name = "test_run_log_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestRunLogBlobEntity {
+    @Id
+    private Long runId;
+
+    /*
+    Queue time of the run, the partition key: test_run_log_blobs is partitioned by month like test_runs.
+     */
+    @Column(nullable = false)
+    private LocalDateTime queuedAt;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+}
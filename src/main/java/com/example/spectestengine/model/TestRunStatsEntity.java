@@ -0,0 +1,48 @@
+package com.example.spectestengine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/*
+Rollup of the runs of one spec finished on one day. Counts are by status, 'flips' counts outcomes
+that differ from the previous executed run of the spec (PASS against FAIL or ERROR). 'lastStatus' is the
+status of the latest executed run merged into the bucket, the previous outcome for the next flush.
+ */
+@Entity
+@Table(name = "test_run_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestRunStatsEntity {
+    @EmbeddedId
+    private TestRunStatsId id;
+
+    private long passed;
+    private long failed;
+    private long errors;
+    private long cancelled;
+    private long expired;
+    private long flips;
+    private String lastStatus;
+    private LocalDateTime lastPassAt;
+    private LocalDateTime lastFailAt;
+
+    /*
+    Compressed HdrHistogram of the durations in ms, merged with every flush.
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] durationHistogram;
+    private Long durationP50Ms;
+    private Long durationP95Ms;
+    private Long durationP99Ms;
+    private Long durationMaxMs;
+}
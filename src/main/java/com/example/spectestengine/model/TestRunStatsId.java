@@ -0,0 +1,18 @@
+package com.example.spectestengine.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TestRunStatsId implements Serializable {
+    private Long specId;
+    private LocalDate bucketDate;
+}
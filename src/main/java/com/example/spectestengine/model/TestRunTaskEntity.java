@@ -0,0 +1,58 @@
+package com.example.spectestengine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "test_run_tasks", indexes = {
+        @Index(name = "idx_test_run_tasks_claim", columnList = "state, bulk, priority, id"),
+        @Index(name = "idx_test_run_tasks_claimed_by", columnList = "claimed_by")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestRunTaskEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private Long runId;
+
+    @Column(nullable = false)
+    private String queueKey;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(nullable = false)
+    private RunPriority priority;
+
+    /*
+    Submitted by a bulk request, counted against 'bulk-concurrency' when claimed.
+     */
+    @Column(nullable = false)
+    private boolean bulk;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TaskState state;
+
+    private String claimedBy;
+
+    private LocalDateTime claimedAt;
+
+    private LocalDateTime createdAt;
+}
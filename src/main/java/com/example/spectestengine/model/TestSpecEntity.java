@@ -41,6 +41,19 @@ public class TestSpecEntity {
     @Column(columnDefinition = "text")
     private String spec;
 
+    /*
+    Canonical JSON form of 'spec', written together with it at create/update.
+    Kept as text rather than jsonb so the field order of the original spec is preserved.
+     */
+    @Column(columnDefinition = "text")
+    private String normalizedSpec;
+
+    @Column(columnDefinition = "text")
+    private String requestBody;
+
+    @Column(length = 64)
+    private String contentHash;
+
     @OneToMany(mappedBy = "spec", fetch = FetchType.LAZY)
     private List<TestRunEntity> runs;
 
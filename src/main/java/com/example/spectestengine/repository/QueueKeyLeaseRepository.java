@@ -0,0 +1,58 @@
+package com.example.spectestengine.repository;
+
+import com.example.spectestengine.model.QueueKeyLeaseEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface QueueKeyLeaseRepository extends JpaRepository<QueueKeyLeaseEntity, String> {
+
+    long countByNodeId(String nodeId);
+
+    /*
+    Takes up to :maxKeys queue keys that have pending tasks and are free, expired or already ours.
+    ON CONFLICT makes the take-over of an expired lease atomic between nodes.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO test_run_key_leases (queue_key, node_id, expires_at)
+            SELECT t.queue_key, :nodeId, now() + make_interval(secs => :ttlSeconds)
+            FROM test_run_tasks t
+            WHERE t.state = 'PENDING'
+              AND NOT EXISTS (SELECT 1 FROM test_run_key_leases l
+                              WHERE l.queue_key = t.queue_key AND l.node_id <> :nodeId AND l.expires_at > now())
+            GROUP BY t.queue_key
+            ORDER BY min(t.priority), min(t.id)
+            LIMIT :maxKeys
+            ON CONFLICT (queue_key) DO UPDATE SET node_id = EXCLUDED.node_id, expires_at = EXCLUDED.expires_at
+            WHERE test_run_key_leases.node_id = EXCLUDED.node_id OR test_run_key_leases.expires_at <= now()""",
+            nativeQuery = true)
+    int acquireLeases(@Param("nodeId") String nodeId, @Param("ttlSeconds") double ttlSeconds, @Param("maxKeys") long maxKeys);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE test_run_key_leases SET expires_at = now() + make_interval(secs => :ttlSeconds) WHERE node_id = :nodeId",
+            nativeQuery = true)
+    int renewLeases(@Param("nodeId") String nodeId, @Param("ttlSeconds") double ttlSeconds);
+
+    /*
+    A key without claimed tasks of this node has nothing in flight here, so another node may take it
+    without breaking the per-key order.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM test_run_key_leases l
+            WHERE l.node_id = :nodeId
+              AND NOT EXISTS (SELECT 1 FROM test_run_tasks t WHERE t.queue_key = l.queue_key AND t.claimed_by = :nodeId)""",
+            nativeQuery = true)
+    int releaseIdleLeases(@Param("nodeId") String nodeId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM test_run_key_leases WHERE node_id = :nodeId", nativeQuery = true)
+    int releaseLeases(@Param("nodeId") String nodeId);
+}
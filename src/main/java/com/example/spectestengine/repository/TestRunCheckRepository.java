@@ -0,0 +1,28 @@
+package com.example.spectestengine.repository;
+
+import com.example.spectestengine.model.CheckType;
+import com.example.spectestengine.model.TestRunCheckEntity;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TestRunCheckRepository extends JpaRepository<TestRunCheckEntity, Long> {
+
+    /*
+    Served by idx_test_run_checks_triage; 'host' is optional. A run is queued before it finishes,
+    so the bound on queuedAt only skips the partitions of later months.
+     */
+    @Query("""
+            SELECT c FROM TestRunCheckEntity c
+            WHERE c.checkType = :checkType AND c.passed = :passed
+              AND (:host IS NULL OR c.host = :host)
+              AND c.finishedAt >= :from AND c.finishedAt < :to AND c.queuedAt < :to
+            ORDER BY c.finishedAt DESC""")
+    List<TestRunCheckEntity> findChecks(@Param("checkType") CheckType checkType, @Param("passed") boolean passed,
+                                        @Param("host") String host, @Param("from") LocalDateTime from,
+                                        @Param("to") LocalDateTime to, Limit limit);
+}
@@ -0,0 +1,7 @@
+package com.example.spectestengine.repository;
+
+import com.example.spectestengine.model.TestRunLogBlobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TestRunLogBlobRepository extends JpaRepository<TestRunLogBlobEntity, Long> {
+}
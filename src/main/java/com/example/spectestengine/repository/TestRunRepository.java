@@ -1,10 +1,97 @@
 package com.example.spectestengine.repository;
 
+import com.example.spectestengine.dto.TestRunSummaryDTO;
 import com.example.spectestengine.model.TestRunEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface TestRunRepository extends JpaRepository<TestRunEntity, Long> {
-    List<TestRunEntity> findAllByStatusIgnoreCase(String status);
-}
\ No newline at end of file
+    /*
+    Status values are stored as written by the engine, an exact match can use idx_test_runs_status.
+     */
+    List<TestRunEntity> findAllByStatus(String status);
+
+    /*
+    Newest first, keyset paged by id over idx_test_runs_spec_id; 'from' and 'to' bound queuedAt and are optional.
+     */
+    @Query("""
+            SELECT new com.example.spectestengine.dto.TestRunSummaryDTO(r.id, r.status, r.queuedAt, r.startedAt, r.finishedAt)
+            FROM TestRunEntity r
+            WHERE r.spec.id = :specId AND r.id < :beforeId
+              AND (:from IS NULL OR r.queuedAt >= :from)
+              AND (:to IS NULL OR r.queuedAt < :to)
+            ORDER BY r.id DESC""")
+    List<TestRunSummaryDTO> findRunSummaries(@Param("specId") Long specId, @Param("beforeId") long beforeId,
+                                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Limit limit);
+
+    @Query("SELECT r FROM TestRunEntity r JOIN FETCH r.spec WHERE r.id = :id")
+    Optional<TestRunEntity> findByIdWithSpec(@Param("id") Long id);
+
+    @Query("SELECT r FROM TestRunEntity r JOIN FETCH r.spec WHERE r.id IN :ids AND r.status NOT IN :statuses")
+    List<TestRunEntity> findAllWithSpecByIdInAndStatusNotIn(@Param("ids") Collection<Long> ids,
+                                                            @Param("statuses") Collection<String> statuses);
+
+    /*
+    Locks the rows of a result batch, a result is only saved if its run was not cancelled or
+    taken over by another node meanwhile.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM TestRunEntity r WHERE r.id IN :ids ORDER BY r.id")
+    List<TestRunEntity> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    /*
+    Durable queue: claims a run for a node, only one node can move it out of QUEUED.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE TestRunEntity r SET r.status = :running, r.executedBy = :nodeId WHERE r.id = :id AND r.status = :queued")
+    int markRunning(@Param("id") Long id, @Param("nodeId") String nodeId,
+                    @Param("queued") String queued, @Param("running") String running);
+
+    /*
+    Runs whose task went back to PENDING (released claims of a stopped or expired node) are QUEUED again,
+    so the next claim can execute them; a late result of the previous node is then discarded.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE test_runs SET status = :queued, executed_by = NULL
+            WHERE status = :running AND id IN (SELECT run_id FROM test_run_tasks WHERE state = 'PENDING')""",
+            nativeQuery = true)
+    int requeueReleasedRuns(@Param("queued") String queued, @Param("running") String running);
+
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE TestRunEntity r SET r.status = :status, r.testResultLog = :testResultLog, r.finishedAt = :finishedAt
+            WHERE r.id IN :ids AND r.status = :currentStatus""")
+    int updateStatusByIdIn(@Param("ids") Collection<Long> ids, @Param("currentStatus") String currentStatus,
+                           @Param("status") String status, @Param("testResultLog") String testResultLog,
+                           @Param("finishedAt") LocalDateTime finishedAt);
+
+    /*
+    Partition maintenance, the functions are defined in the V1 and V3 migrations.
+     */
+    @Transactional
+    @Query(value = "SELECT create_test_runs_partitions(:monthsAhead)", nativeQuery = true)
+    int createPartitions(@Param("monthsAhead") int monthsAhead);
+
+    @Transactional
+    @Query(value = "SELECT drop_expired_test_runs_partitions(:cutoff, :archive)", nativeQuery = true)
+    List<String> dropExpiredPartitions(@Param("cutoff") LocalDateTime cutoff, @Param("archive") boolean archive);
+
+    @Transactional
+    @Query(value = "SELECT delete_expired_default_rows(:cutoff, :batchSize)", nativeQuery = true)
+    int deleteExpiredDefaultRows(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
+}
@@ -0,0 +1,48 @@
+package com.example.spectestengine.repository;
+
+import com.example.spectestengine.model.TestRunStatsEntity;
+import com.example.spectestengine.model.TestRunStatsId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface TestRunStatsRepository extends JpaRepository<TestRunStatsEntity, TestRunStatsId> {
+
+    @Modifying
+    @Query(value = "INSERT INTO test_run_stats (spec_id, bucket_date) VALUES (:specId, :bucketDate) ON CONFLICT DO NOTHING",
+            nativeQuery = true)
+    void insertIfAbsent(@Param("specId") Long specId, @Param("bucketDate") LocalDate bucketDate);
+
+    /*
+    Locks the bucket while a flush merges into it, nodes of a cluster flush the same buckets.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM TestRunStatsEntity s WHERE s.id = :id")
+    Optional<TestRunStatsEntity> findForUpdate(@Param("id") TestRunStatsId id);
+
+    /*
+    Previous outcome for the first flush of a bucket, from the latest earlier bucket that has one.
+     */
+    @Query(value = """
+            SELECT last_status FROM test_run_stats
+            WHERE spec_id = :specId AND bucket_date < :bucketDate AND last_status IS NOT NULL
+            ORDER BY bucket_date DESC
+            LIMIT 1""", nativeQuery = true)
+    Optional<String> findLastStatusBefore(@Param("specId") Long specId, @Param("bucketDate") LocalDate bucketDate);
+
+    /*
+    Primary key range scan, at most one row per day.
+     */
+    @Query("""
+            SELECT s FROM TestRunStatsEntity s
+            WHERE s.id.specId = :specId AND s.id.bucketDate >= :from
+            ORDER BY s.id.bucketDate""")
+    List<TestRunStatsEntity> findBuckets(@Param("specId") Long specId, @Param("from") LocalDate from);
+}
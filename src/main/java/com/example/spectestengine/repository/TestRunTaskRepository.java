@@ -0,0 +1,82 @@
+package com.example.spectestengine.repository;
+
+import com.example.spectestengine.model.TestRunTaskEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface TestRunTaskRepository extends JpaRepository<TestRunTaskEntity, Long> {
+
+    @Transactional
+    @Query(value = """
+            UPDATE test_run_tasks SET state = 'CLAIMED', claimed_by = :nodeId, claimed_at = now()
+            WHERE id IN (SELECT id FROM test_run_tasks
+                         WHERE state = 'PENDING' AND bulk = :bulk
+                         ORDER BY priority, id
+                         LIMIT :batchSize
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING *""", nativeQuery = true)
+    List<TestRunTaskEntity> claimBatch(@Param("nodeId") String nodeId, @Param("bulk") boolean bulk, @Param("batchSize") int batchSize);
+
+    /*
+    Cluster mode: only tasks whose queue key is leased by this node are claimed,
+    so every key is executed by one node at a time.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE test_run_tasks SET state = 'CLAIMED', claimed_by = :nodeId, claimed_at = now()
+            WHERE id IN (SELECT t.id FROM test_run_tasks t
+                         JOIN test_run_key_leases l ON l.queue_key = t.queue_key
+                         WHERE t.state = 'PENDING' AND t.bulk = :bulk AND l.node_id = :nodeId AND l.expires_at > now()
+                         ORDER BY t.priority, t.id
+                         LIMIT :batchSize
+                         FOR UPDATE OF t SKIP LOCKED)
+            RETURNING *""", nativeQuery = true)
+    List<TestRunTaskEntity> claimLeasedBatch(@Param("nodeId") String nodeId, @Param("bulk") boolean bulk, @Param("batchSize") int batchSize);
+
+    long countByClaimedBy(String claimedBy);
+
+    long countByClaimedByAndBulk(String claimedBy, boolean bulk);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE test_run_tasks SET state = 'PENDING', claimed_by = NULL, claimed_at = NULL WHERE id = :id", nativeQuery = true)
+    int releaseTask(@Param("id") Long id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE test_run_tasks SET state = 'PENDING', claimed_by = NULL, claimed_at = NULL WHERE claimed_by = :nodeId", nativeQuery = true)
+    int releaseClaimed(@Param("nodeId") String nodeId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE test_run_tasks SET state = 'PENDING', claimed_by = NULL, claimed_at = NULL WHERE state = 'CLAIMED'", nativeQuery = true)
+    int releaseAllClaimed();
+
+    /*
+    Failover: tasks claimed by a node that no longer holds a live lease on their key go back to PENDING
+    and keep their id, so the next owner of the key runs them in the original order.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE test_run_tasks t SET state = 'PENDING', claimed_by = NULL, claimed_at = NULL
+            WHERE t.state = 'CLAIMED'
+              AND NOT EXISTS (SELECT 1 FROM test_run_key_leases l
+                              WHERE l.queue_key = t.queue_key AND l.node_id = t.claimed_by AND l.expires_at > now())""",
+            nativeQuery = true)
+    int releaseOrphanedClaims();
+
+    @Modifying
+    @Query("DELETE FROM TestRunTaskEntity t WHERE t.runId = :runId")
+    void deleteByRunId(@Param("runId") Long runId);
+
+    @Modifying
+    @Query("DELETE FROM TestRunTaskEntity t WHERE t.runId IN :runIds")
+    void deleteByRunIdIn(@Param("runIds") Collection<Long> runIds);
+}
@@ -1,13 +1,18 @@
 package com.example.spectestengine.repository;
 
 import com.example.spectestengine.model.TestSpecEntity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface TestSpecRepository extends JpaRepository<TestSpecEntity, Long> {
@@ -15,6 +20,26 @@ public interface TestSpecRepository extends JpaRepository<TestSpecEntity, Long>
 
     List<TestSpecEntity> findAllByIdBetween(Long fromId, Long toId);
 
-    @Query("SELECT s FROM TestSpecEntity s LEFT JOIN FETCH s.runs WHERE s.id = :id")
-    Optional<TestSpecEntity> findByIdWithRuns(@Param("id") Long id);
+    String SPEC_ROW_SELECT = """
+            SELECT new com.example.spectestengine.repository.TestSpecRow(s.id, s.name, s.format,
+                CASE WHEN s.normalizedSpec IS NULL OR s.format = com.example.spectestengine.model.SpecFormat.XML THEN s.spec END,
+                CASE WHEN s.format <> com.example.spectestengine.model.SpecFormat.XML THEN s.normalizedSpec END,
+                s.createdAt)
+            FROM TestSpecEntity s""";
+
+    @Query(SPEC_ROW_SELECT + " ORDER BY s.id")
+    List<TestSpecRow> findAllRows();
+
+    /*
+    Keyset page: served by the primary key index however deep the page is.
+     */
+    @Query(SPEC_ROW_SELECT + " WHERE s.id > :afterId ORDER BY s.id")
+    List<TestSpecRow> findRowsAfter(@Param("afterId") long afterId, Limit limit);
+
+    /*
+    Read through a server-side cursor, must be consumed inside a read-only transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(SPEC_ROW_SELECT + " ORDER BY s.id")
+    Stream<TestSpecRow> streamAllRows();
 }
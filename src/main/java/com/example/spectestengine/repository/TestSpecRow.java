@@ -0,0 +1,17 @@
+package com.example.spectestengine.repository;
+
+import com.example.spectestengine.model.SpecFormat;
+
+import java.time.LocalDateTime;
+
+/*
+Listing projection of a spec: no runs, no request body, and the raw spec only where the
+canonical form cannot be served (XML or specs stored before it existed).
+ */
+public record TestSpecRow(Long id,
+                          String name,
+                          SpecFormat format,
+                          String spec,
+                          String normalizedSpec,
+                          LocalDateTime createdAt) {
+}
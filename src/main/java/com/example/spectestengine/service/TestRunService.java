@@ -1,15 +1,38 @@
 package com.example.spectestengine.service;
 
+import com.example.spectestengine.dto.QueueStatsDTO;
+import com.example.spectestengine.dto.SpecCacheStatsDTO;
+import com.example.spectestengine.dto.TestRunCheckDTO;
 import com.example.spectestengine.dto.TestRunDTO;
+import com.example.spectestengine.dto.TestRunStatsDTO;
+import com.example.spectestengine.model.CheckType;
+import com.example.spectestengine.model.LoadProfile;
+import com.example.spectestengine.model.RunPriority;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TestRunService {
-    List<TestRunDTO> runAllTestsSpec();
+    List<TestRunDTO> runAllTestsSpec(RunPriority priority, Long waitMs);
 
-    TestRunDTO runTestBySpecId(Long specId);
+    TestRunDTO runTestBySpecId(Long specId, Long waitMs);
 
-    TestRunDTO runTestWithSpecName(String specName);
+    TestRunDTO runTestWithSpecName(String specName, Long waitMs);
 
-    List<TestRunDTO> runTestsInSpecRangeId(Long fromId, Long toId);
+    List<TestRunDTO> runTestsInSpecRangeId(Long fromId, Long toId, RunPriority priority, Long waitMs);
+
+    TestRunDTO runLoadTestBySpecId(Long specId, LoadProfile loadProfile, Long waitMs);
+
+    TestRunDTO getTestRunResult(Long runId, Long waitMs);
+
+    TestRunDTO cancelTestRun(Long runId);
+
+    QueueStatsDTO getQueueStats();
+
+    SpecCacheStatsDTO getSpecCacheStats();
+
+    List<TestRunCheckDTO> findCheckResults(CheckType checkType, boolean passed, String host,
+                                           LocalDateTime from, LocalDateTime to, Integer limit);
+
+    TestRunStatsDTO getRunStats(Long specId, Integer days);
 }
@@ -1,56 +1,99 @@
 package com.example.spectestengine.service;
 
+import static com.example.spectestengine.utils.Constants.DEFAULT_CHECK_QUERY_HOURS;
+import static com.example.spectestengine.utils.Constants.DEFAULT_CHECK_QUERY_LIMIT;
+import static com.example.spectestengine.utils.Constants.DEFAULT_RUN_WAIT_MS;
+import static com.example.spectestengine.utils.Constants.DEFAULT_STATS_DAYS;
+import static com.example.spectestengine.utils.Constants.MAX_CHECK_QUERY_LIMIT;
+import static com.example.spectestengine.utils.Constants.MAX_RUN_WAIT_MS;
+import static com.example.spectestengine.utils.Constants.MAX_STATS_DAYS;
+
+import com.example.spectestengine.dto.QueueStatsDTO;
+import com.example.spectestengine.dto.SpecCacheStatsDTO;
+import com.example.spectestengine.engine.CompiledSpecCache;
+import com.example.spectestengine.dto.TestRunCheckDTO;
 import com.example.spectestengine.dto.TestRunDTO;
+import com.example.spectestengine.dto.TestRunStatsBucketDTO;
+import com.example.spectestengine.dto.TestRunStatsDTO;
+import com.example.spectestengine.engine.ResultLogStore;
+import com.example.spectestengine.engine.RunStatsCollector;
 import com.example.spectestengine.engine.TestRunEngine;
+import com.example.spectestengine.engine.TestRunQueue;
+import com.example.spectestengine.model.CheckType;
+import com.example.spectestengine.model.LoadProfile;
+import com.example.spectestengine.model.RunPriority;
 import com.example.spectestengine.model.TestRunEntity;
+import com.example.spectestengine.model.TestRunStatsEntity;
+import com.example.spectestengine.repository.TestRunCheckRepository;
 import com.example.spectestengine.repository.TestRunRepository;
+import com.example.spectestengine.repository.TestRunStatsRepository;
 import com.example.spectestengine.repository.TestSpecRepository;
 import com.example.spectestengine.utils.TestRunMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Locale;
 
+/*
+Not @Transactional on purpose: callers may long-poll for a result here,
+and holding a transaction (and its connection) while waiting would starve the pool.
+Each repository call runs in its own transaction, and the engine saves results itself.
+ */
 @Slf4j
 @Service
-@Transactional
 public class TestRunServiceImpl implements TestRunService {
     private static final String SPEC_NOT_FOUND_LOG_MSG = "Specification not found with '%s': '%s'";
 
     private final TestSpecRepository testSpecRepository;
     private final TestRunRepository testRunRepository;
+    private final TestRunCheckRepository testRunCheckRepository;
+    private final TestRunStatsRepository testRunStatsRepository;
     private final TestRunEngine testRunEngine;
+    private final TestRunQueue testRunQueue;
+    private final CompiledSpecCache compiledSpecCache;
+    private final ResultLogStore resultLogStore;
+    private final RunStatsCollector runStatsCollector;
 
-    public TestRunServiceImpl(TestSpecRepository testSpecRepository, TestRunRepository testRunRepository, TestRunEngine testRunEngine) {
+    public TestRunServiceImpl(TestSpecRepository testSpecRepository, TestRunRepository testRunRepository,
+                              TestRunCheckRepository testRunCheckRepository, TestRunStatsRepository testRunStatsRepository,
+                              TestRunEngine testRunEngine, TestRunQueue testRunQueue, CompiledSpecCache compiledSpecCache,
+                              ResultLogStore resultLogStore, RunStatsCollector runStatsCollector) {
         this.testSpecRepository = testSpecRepository;
         this.testRunRepository = testRunRepository;
+        this.testRunCheckRepository = testRunCheckRepository;
+        this.testRunStatsRepository = testRunStatsRepository;
         this.testRunEngine = testRunEngine;
+        this.testRunQueue = testRunQueue;
+        this.compiledSpecCache = compiledSpecCache;
+        this.resultLogStore = resultLogStore;
+        this.runStatsCollector = runStatsCollector;
     }
 
     @Override
-    public List<TestRunDTO> runAllTestsSpec() {
-        log.info("Running all test specifications");
-        return testSpecRepository.findAll().stream()
-                .map(testSpecEntity -> {
-                    TestRunEntity runEntity = testRunEngine.buildTestRun(testSpecEntity);
-                    testRunRepository.save(runEntity);
-                    return TestRunMapper.mapToDTO(runEntity);
-                })
+    public List<TestRunDTO> runAllTestsSpec(RunPriority priority, Long waitMs) {
+        log.info("Running all test specifications with priority: '{}'", priority);
+        return testRunEngine.submitTestRuns(testSpecRepository.findAll(), priority, resolveWaitMs(waitMs)).stream()
+                .map(this::mapToSummaryDTO)
                 .toList();
     }
 
     @Override
-    public TestRunDTO runTestBySpecId(Long specId) {
+    public TestRunDTO runTestBySpecId(Long specId, Long waitMs) {
         log.info("Running test for specification ID: '{}'", specId);
         return testSpecRepository.findById(specId)
                 .map(testSpecEntity -> {
-                    TestRunEntity runEntity = testRunEngine.buildTestRun(testSpecEntity);
-                    testRunRepository.save(runEntity);
-                    log.info("Successfully run test id: '{}', for specification ID: '{}'", runEntity.getId(), specId);
-                    return TestRunMapper.mapToDTO(runEntity);
+                    TestRunEntity queuedRun = testRunEngine.submitTestRun(testSpecEntity, RunPriority.INTERACTIVE);
+                    log.info("Successfully submitted test run id: '{}', for specification ID: '{}'", queuedRun.getId(), specId);
+                    return awaitRunResult(queuedRun.getId(), waitMs);
                 })
                 .orElseThrow(() -> {
                     log.warn("Run test failed - specification with ID: '{}' not found", specId);
@@ -60,14 +103,13 @@ public class TestRunServiceImpl implements TestRunService {
     }
 
     @Override
-    public TestRunDTO runTestWithSpecName(String specName) {
+    public TestRunDTO runTestWithSpecName(String specName, Long waitMs) {
         log.info("Running test for specification name: '{}'", specName);
         return testSpecRepository.findByName(specName)
                 .map(testSpecEntity -> {
-                    TestRunEntity runEntity = testRunEngine.buildTestRun(testSpecEntity);
-                    testRunRepository.save(runEntity);
-                    log.info("Successfully run test id: '{}', for specification name: '{}'", runEntity.getId(), specName);
-                    return TestRunMapper.mapToDTO(runEntity);
+                    TestRunEntity queuedRun = testRunEngine.submitTestRun(testSpecEntity, RunPriority.INTERACTIVE);
+                    log.info("Successfully submitted test run id: '{}', for specification name: '{}'", queuedRun.getId(), specName);
+                    return awaitRunResult(queuedRun.getId(), waitMs);
                 })
                 .orElseThrow(() -> {
                     log.warn("Run test failed - specification with name: '{}' not found", specName);
@@ -77,15 +119,151 @@ public class TestRunServiceImpl implements TestRunService {
     }
 
     @Override
-    public List<TestRunDTO> runTestsInSpecRangeId(Long fromId, Long toId) {
-        log.info("Running tests for id specification range: '{}' to '{}'", fromId, toId);
-        return testSpecRepository.findAllByIdBetween(fromId, toId).stream()
+    public List<TestRunDTO> runTestsInSpecRangeId(Long fromId, Long toId, RunPriority priority, Long waitMs) {
+        log.info("Running tests for id specification range: '{}' to '{}' with priority: '{}'", fromId, toId, priority);
+        List<TestRunDTO> resultDTOS = testRunEngine.submitTestRuns(testSpecRepository.findAllByIdBetween(fromId, toId), priority, resolveWaitMs(waitMs)).stream()
+                .map(this::mapToSummaryDTO)
+                .toList();
+        log.info("Successfully submitted '{}' test runs, in range specification : '{}' to '{}'", resultDTOS.size(), fromId, toId);
+        return resultDTOS;
+    }
+
+    @Override
+    public TestRunDTO runLoadTestBySpecId(Long specId, LoadProfile loadProfile, Long waitMs) {
+        log.info("Running load test for specification ID: '{}' with profile: '{}'", specId, loadProfile);
+        return testSpecRepository.findById(specId)
                 .map(testSpecEntity -> {
-                    TestRunEntity runEntity = testRunEngine.buildTestRun(testSpecEntity);
-                    testRunRepository.save(runEntity);
-                    log.info("Successfully run test id: '{}', in range specification : '{}' to '{}'", runEntity.getId(), fromId, toId);
-                    return TestRunMapper.mapToDTO(runEntity);
+                    TestRunEntity queuedRun = testRunEngine.submitLoadRun(testSpecEntity, loadProfile);
+                    log.info("Successfully submitted load run id: '{}', for specification ID: '{}'", queuedRun.getId(), specId);
+                    return awaitRunResult(queuedRun.getId(), waitMs);
                 })
+                .orElseThrow(() -> {
+                    log.warn("Load test failed - specification with ID: '{}' not found", specId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            SPEC_NOT_FOUND_LOG_MSG.formatted("id:", specId));
+                });
+    }
+
+    @Override
+    public TestRunDTO getTestRunResult(Long runId, Long waitMs) {
+        log.debug("Searching test run result by ID: '{}'", runId);
+        return awaitRunResult(runId, waitMs);
+    }
+
+    @Override
+    public TestRunDTO cancelTestRun(Long runId) {
+        log.info("Cancelling test run with ID: '{}'", runId);
+        return testRunEngine.cancelRun(runId)
+                .map(this::mapToDTO)
+                .orElseThrow(() -> {
+                    log.warn("Cancel failed - test run not found with ID: '{}'", runId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            "Test run not found with id: '%s'".formatted(runId));
+                });
+    }
+
+    @Override
+    public QueueStatsDTO getQueueStats() {
+        QueueStatsDTO queueStats = testRunQueue.getStats();
+        log.debug("Test run queue footprint: '{}'", queueStats);
+        return queueStats;
+    }
+
+    @Override
+    public SpecCacheStatsDTO getSpecCacheStats() {
+        SpecCacheStatsDTO specCacheStats = compiledSpecCache.getStats();
+        log.debug("Compiled specification cache stats: '{}'", specCacheStats);
+        return specCacheStats;
+    }
+
+    @Override
+    public List<TestRunCheckDTO> findCheckResults(CheckType checkType, boolean passed, String host,
+                                                  LocalDateTime from, LocalDateTime to, Integer limit) {
+        LocalDateTime resolvedTo = to != null ? to : LocalDateTime.now();
+        LocalDateTime resolvedFrom = from != null ? from : resolvedTo.minusHours(DEFAULT_CHECK_QUERY_HOURS);
+        int resolvedLimit = limit == null ? DEFAULT_CHECK_QUERY_LIMIT : Math.max(1, Math.min(limit, MAX_CHECK_QUERY_LIMIT));
+        String resolvedHost = host == null || host.isBlank() ? null : host.toLowerCase(Locale.ROOT);
+        log.debug("Searching '{}' check results, passed: '{}', host: '{}', from: '{}' to: '{}'",
+                checkType, passed, resolvedHost, resolvedFrom, resolvedTo);
+
+        return testRunCheckRepository.findChecks(checkType, passed, resolvedHost, resolvedFrom, resolvedTo, Limit.of(resolvedLimit))
+                .stream()
+                .map(check -> new TestRunCheckDTO(check.getRunId(), check.getSpecId(), check.getCheckType(), check.isPassed(),
+                        check.getHost(), check.getExpectedSummary(), check.getReceivedSummary(), check.getFinishedAt()))
                 .toList();
     }
+
+    /*
+    Reads at most one rollup row per day, however many runs the spec has; runs finished
+    since the last flush of the rollups are not included yet.
+     */
+    @Override
+    public TestRunStatsDTO getRunStats(Long specId, Integer days) {
+        if (!testSpecRepository.existsById(specId)) {
+            log.warn("Specification not found for ID: '{}'", specId);
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, SPEC_NOT_FOUND_LOG_MSG.formatted("id:", specId));
+        }
+
+        int resolvedDays = days == null ? DEFAULT_STATS_DAYS : Math.max(1, Math.min(days, MAX_STATS_DAYS));
+        LocalDate from = LocalDate.now().minusDays(resolvedDays - 1L);
+        List<TestRunStatsEntity> buckets = testRunStatsRepository.findBuckets(specId, from);
+        log.debug("Found '{}' statistics buckets for specification ID: '{}' since '{}'", buckets.size(), specId, from);
+
+        long passed = buckets.stream().mapToLong(TestRunStatsEntity::getPassed).sum();
+        long failed = buckets.stream().mapToLong(TestRunStatsEntity::getFailed).sum();
+        long errors = buckets.stream().mapToLong(TestRunStatsEntity::getErrors).sum();
+        long flips = buckets.stream().mapToLong(TestRunStatsEntity::getFlips).sum();
+        long executedRuns = passed + failed + errors;
+        Histogram durationsMs = runStatsCollector.mergeDurations(buckets);
+        boolean timed = durationsMs.getTotalCount() > 0;
+        return new TestRunStatsDTO(
+                specId,
+                from,
+                passed,
+                failed,
+                errors,
+                buckets.stream().mapToLong(TestRunStatsEntity::getCancelled).sum(),
+                buckets.stream().mapToLong(TestRunStatsEntity::getExpired).sum(),
+                executedRuns == 0 ? null : (double) passed / executedRuns,
+                executedRuns == 0 ? null : (double) flips / executedRuns,
+                timed ? durationsMs.getValueAtPercentile(50) : null,
+                timed ? durationsMs.getValueAtPercentile(95) : null,
+                timed ? durationsMs.getValueAtPercentile(99) : null,
+                timed ? durationsMs.getMaxValue() : null,
+                buckets.stream().map(TestRunStatsEntity::getLastPassAt).filter(Objects::nonNull).max(Comparator.naturalOrder()).orElse(null),
+                buckets.stream().map(TestRunStatsEntity::getLastFailAt).filter(Objects::nonNull).max(Comparator.naturalOrder()).orElse(null),
+                buckets.stream()
+                        .map(bucket -> new TestRunStatsBucketDTO(bucket.getId().getBucketDate(), bucket.getPassed(),
+                                bucket.getFailed(), bucket.getErrors(), bucket.getCancelled(), bucket.getExpired(),
+                                bucket.getFlips(), bucket.getDurationP50Ms(), bucket.getDurationP95Ms(),
+                                bucket.getDurationP99Ms(), bucket.getDurationMaxMs()))
+                        .toList()
+        );
+    }
+
+    private TestRunDTO awaitRunResult(Long runId, Long waitMs) {
+        return testRunEngine.awaitResult(runId, resolveWaitMs(waitMs))
+                .or(() -> testRunRepository.findByIdWithSpec(runId))
+                .map(this::mapToDTO)
+                .orElseThrow(() -> {
+                    log.warn("Test run not found with ID: '{}'", runId);
+                    return new ResponseStatusException(HttpStatus.NOT_FOUND,
+                            "Test run not found with id: '%s'".formatted(runId));
+                });
+    }
+
+    private TestRunDTO mapToDTO(TestRunEntity runEntity) {
+        return TestRunMapper.mapToDTO(runEntity, resultLogStore.read(runEntity));
+    }
+
+    private TestRunDTO mapToSummaryDTO(TestRunEntity runEntity) {
+        return TestRunMapper.mapToDTO(runEntity, resultLogStore.readSummary(runEntity));
+    }
+
+    private long resolveWaitMs(Long waitMs) {
+        if (waitMs == null) {
+            return DEFAULT_RUN_WAIT_MS;
+        }
+        return Math.max(0, Math.min(waitMs, MAX_RUN_WAIT_MS));
+    }
 }
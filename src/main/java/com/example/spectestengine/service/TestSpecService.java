@@ -1,8 +1,12 @@
 package com.example.spectestengine.service;
 
 import com.example.spectestengine.dto.TestSpecDTO;
+import com.example.spectestengine.dto.TestSpecPageDTO;
 import com.example.spectestengine.dto.TestSpecWithRunsDTO;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TestSpecService {
@@ -14,7 +18,11 @@ public interface TestSpecService {
 
     List<TestSpecDTO> getAllTestSpec();
 
-    TestSpecWithRunsDTO getSpecWithRuns(Long specId);
+    TestSpecPageDTO getSpecPage(Long afterId, Integer limit);
+
+    void streamAllSpecs(OutputStream outputStream) throws IOException;
+
+    TestSpecWithRunsDTO getSpecWithRuns(Long specId, Long beforeId, Integer limit, LocalDateTime from, LocalDateTime to);
 
     TestSpecDTO updateSpecById(Long specId, String rawSpec);
 
@@ -1,21 +1,38 @@
 package com.example.spectestengine.service;
 
-import com.example.spectestengine.dto.TestRunDTO;
+import static com.example.spectestengine.utils.Constants.DEFAULT_RUN_HISTORY_PAGE_SIZE;
+import static com.example.spectestengine.utils.Constants.DEFAULT_SPEC_PAGE_SIZE;
+import static com.example.spectestengine.utils.Constants.MAX_RUN_HISTORY_PAGE_SIZE;
+import static com.example.spectestengine.utils.Constants.MAX_SPEC_PAGE_SIZE;
+
+import com.example.spectestengine.dto.TestRunSummaryDTO;
 import com.example.spectestengine.dto.TestSpecDTO;
+import com.example.spectestengine.dto.TestSpecPageDTO;
 import com.example.spectestengine.dto.TestSpecWithRunsDTO;
+import com.example.spectestengine.engine.CompiledSpecCache;
 import com.example.spectestengine.model.TestSpecEntity;
+import com.example.spectestengine.repository.TestRunRepository;
 import com.example.spectestengine.repository.TestSpecRepository;
-import com.example.spectestengine.utils.SpecFormatMapper;
-import com.example.spectestengine.utils.SpecFormatResolver;
+import com.example.spectestengine.repository.TestSpecRow;
+import com.example.spectestengine.utils.SpecCanonicalizer;
+import com.example.spectestengine.utils.SpecCanonicalizer.CanonicalSpec;
 import com.example.spectestengine.utils.TestSpecMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -24,9 +41,20 @@ public class TestSpecServiceImpl implements TestSpecService {
     private static final String SPEC_NOT_FOUND_LOG_MSG = "Specification not found with '%s': '%s'";
 
     private final TestSpecRepository testSpecRepository;
+    private final CompiledSpecCache compiledSpecCache;
+    private final TestRunRepository testRunRepository;
+    private final ObjectWriter specLineWriter;
 
-    public TestSpecServiceImpl(TestSpecRepository testSpecRepository) {
+    /*
+    'objectMapper' is the one the JSON responses are written with, so a streamed line matches the listing.
+     */
+    public TestSpecServiceImpl(TestSpecRepository testSpecRepository, CompiledSpecCache compiledSpecCache,
+                               TestRunRepository testRunRepository, ObjectMapper objectMapper) {
         this.testSpecRepository = testSpecRepository;
+        this.compiledSpecCache = compiledSpecCache;
+        this.testRunRepository = testRunRepository;
+        this.specLineWriter = objectMapper.writerFor(TestSpecDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     @Override
@@ -39,12 +67,12 @@ public class TestSpecServiceImpl implements TestSpecService {
                             "Specification with name '%s' already exists".formatted(specName));
                 });
 
-        TestSpecEntity savedEntity = testSpecRepository.save(TestSpecEntity.builder()
+        TestSpecEntity specEntity = TestSpecEntity.builder()
                 .name(specName)
-                .format(SpecFormatResolver.resolve(rawSpec))
-                .spec(rawSpec)
                 .createdAt(LocalDateTime.now())
-                .build());
+                .build();
+        applySpec(specEntity, rawSpec);
+        TestSpecEntity savedEntity = testSpecRepository.save(specEntity);
         log.info("Successfully created specification with name: '{}' and ID: '{}'", specName, savedEntity.getId());
 
         return TestSpecMapper.mapToDTO(savedEntity);
@@ -80,34 +108,73 @@ public class TestSpecServiceImpl implements TestSpecService {
     @Transactional(readOnly = true)
     public List<TestSpecDTO> getAllTestSpec() {
         log.debug("Searching all specifications");
-        return testSpecRepository.findAll().stream()
+        return testSpecRepository.findAllRows().stream()
+                .map(TestSpecMapper::mapToDTO)
+                .toList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TestSpecPageDTO getSpecPage(Long afterId, Integer limit) {
+        long resolvedAfterId = afterId == null ? 0 : afterId;
+        int pageSize = limit == null ? DEFAULT_SPEC_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_SPEC_PAGE_SIZE));
+        log.debug("Searching specifications after ID: '{}', page size: '{}'", resolvedAfterId, pageSize);
+
+        List<TestSpecDTO> specDTOS = testSpecRepository.findRowsAfter(resolvedAfterId, Limit.of(pageSize)).stream()
                 .map(TestSpecMapper::mapToDTO)
                 .toList();
+        Long nextAfterId = specDTOS.size() < pageSize ? null : specDTOS.getLast().id();
+        return new TestSpecPageDTO(specDTOS, nextAfterId);
     }
 
+    /*
+    NDJSON, one spec per line in id order, written while the rows are read from the cursor.
+    Each line is the same TestSpecDTO as in the paged listing. The stored canonical form is already
+    compact JSON and is copied to the output as is; only XML specs are parsed. The output is flushed
+    by the generator's buffer, not after every line.
+     */
     @Override
     @Transactional(readOnly = true)
-    public TestSpecWithRunsDTO getSpecWithRuns(Long specId) {
-        log.debug("Searching specification with runs for specification ID: '{}'", specId);
-        return testSpecRepository.findByIdWithRuns(specId)
-                .map(spec -> new TestSpecWithRunsDTO(
-                        spec.getId(),
-                        spec.getName(),
-                        TestSpecMapper.getFormattedSpec(spec),
-                        spec.getFormat().getMediaType(),
-                        spec.getCreatedAt(),
-                        spec.getRuns().stream()
-                                .map(run -> new TestRunDTO(
-                                        run.getId(),
-                                        spec.getId(),
-                                        spec.getFormat().getMediaType(),
-                                        run.getStatus(),
-                                        SpecFormatMapper.fromJson(run.getTestResultLog()),
-                                        run.getStartedAt(),
-                                        run.getFinishedAt()
-                                ))
-                                .toList()
-                ))
+    public void streamAllSpecs(OutputStream outputStream) throws IOException {
+        log.debug("Streaming all specifications");
+        long streamedSpecs = 0;
+        try (Stream<TestSpecRow> specRows = testSpecRepository.streamAllRows();
+             JsonGenerator generator = specLineWriter.createGenerator(outputStream)) {
+            generator.setRootValueSeparator(null);
+            for (TestSpecRow specRow : (Iterable<TestSpecRow>) specRows::iterator) {
+                specLineWriter.writeValue(generator, TestSpecMapper.mapToRawJsonDTO(specRow));
+                generator.writeRaw('\n');
+                streamedSpecs++;
+            }
+        }
+        log.debug("Streamed '{}' specifications", streamedSpecs);
+    }
+
+    /*
+    Run history is a keyset page of summaries, newest first; 'nextBeforeId' is the cursor of the next page.
+    Result logs are not read here.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public TestSpecWithRunsDTO getSpecWithRuns(Long specId, Long beforeId, Integer limit, LocalDateTime from, LocalDateTime to) {
+        long resolvedBeforeId = beforeId == null ? Long.MAX_VALUE : beforeId;
+        int pageSize = limit == null ? DEFAULT_RUN_HISTORY_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_RUN_HISTORY_PAGE_SIZE));
+        log.debug("Searching specification with runs for specification ID: '{}', before run ID: '{}', page size: '{}'",
+                specId, resolvedBeforeId, pageSize);
+        return testSpecRepository.findById(specId)
+                .map(spec -> {
+                    List<TestRunSummaryDTO> runSummaries = testRunRepository.findRunSummaries(specId, resolvedBeforeId, from, to,
+                            Limit.of(pageSize));
+                    return new TestSpecWithRunsDTO(
+                            spec.getId(),
+                            spec.getName(),
+                            TestSpecMapper.getFormattedSpec(spec),
+                            spec.getFormat().getMediaType(),
+                            spec.getCreatedAt(),
+                            runSummaries,
+                            runSummaries.size() < pageSize ? null : runSummaries.getLast().runId()
+                    );
+                })
                 .orElseThrow(() -> {
                     log.warn("Specification with runs not found for ID: '{}'", specId);
                     return new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -120,9 +187,9 @@ public class TestSpecServiceImpl implements TestSpecService {
         log.info("Updating specification with ID: '{}'", specId);
         return testSpecRepository.findById(specId)
                 .map(specEntity -> {
-                    specEntity.setFormat(SpecFormatResolver.resolve(rawSpec));
-                    specEntity.setSpec(rawSpec);
+                    applySpec(specEntity, rawSpec);
                     TestSpecEntity savedSpec = testSpecRepository.save(specEntity);
+                    compiledSpecCache.evict(savedSpec.getId());
                     log.debug("Specification updated from: '{}' to: '{}'", specEntity, savedSpec);
                     return TestSpecMapper.mapToDTO(savedSpec);
                 })
@@ -138,9 +205,9 @@ public class TestSpecServiceImpl implements TestSpecService {
         log.info("Updating specification with name: '{}'", specName);
         return testSpecRepository.findByName(specName)
                 .map(specEntity -> {
-                    specEntity.setFormat(SpecFormatResolver.resolve(rawSpec));
-                    specEntity.setSpec(rawSpec);
+                    applySpec(specEntity, rawSpec);
                     TestSpecEntity savedSpec = testSpecRepository.save(specEntity);
+                    compiledSpecCache.evict(savedSpec.getId());
                     log.debug("Specification updated from: '{}' to: '{}'", specEntity, savedSpec);
                     return TestSpecMapper.mapToDTO(savedSpec);
                 })
@@ -157,6 +224,7 @@ public class TestSpecServiceImpl implements TestSpecService {
         return testSpecRepository.findById(specId)
                 .map(specEntity -> {
                     testSpecRepository.delete(specEntity);
+                    compiledSpecCache.evict(specEntity.getId());
                     log.debug("Successfully deleted specification with id: '{}'", specId);
                     return TestSpecMapper.mapToDTO(specEntity);
                 })
@@ -173,6 +241,7 @@ public class TestSpecServiceImpl implements TestSpecService {
         return testSpecRepository.findByName(specName)
                 .map(specEntity -> {
                     testSpecRepository.delete(specEntity);
+                    compiledSpecCache.evict(specEntity.getId());
                     log.debug("Successfully deleted specification with name: '{}'", specName);
                     return TestSpecMapper.mapToDTO(specEntity);
                 })
@@ -182,4 +251,13 @@ public class TestSpecServiceImpl implements TestSpecService {
                             SPEC_NOT_FOUND_LOG_MSG.formatted("name:", specName));
                 });
     }
-}
\ No newline at end of file
+
+    private static void applySpec(TestSpecEntity specEntity, String rawSpec) {
+        CanonicalSpec canonicalSpec = SpecCanonicalizer.canonicalize(rawSpec);
+        specEntity.setFormat(canonicalSpec.format());
+        specEntity.setSpec(rawSpec);
+        specEntity.setNormalizedSpec(canonicalSpec.normalizedSpec());
+        specEntity.setRequestBody(canonicalSpec.requestBody());
+        specEntity.setContentHash(canonicalSpec.contentHash());
+    }
+}
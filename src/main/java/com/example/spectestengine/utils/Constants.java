@@ -8,11 +8,36 @@ public final class Constants {
     }
 
     public static final int MAX_QUEUE_SIZE = 1000;
+    public static final long DEFAULT_RUN_WAIT_MS = 5000;
+    public static final long MAX_RUN_WAIT_MS = 60000;
+    public static final int DEFAULT_SPEC_PAGE_SIZE = 100;
+    public static final int MAX_SPEC_PAGE_SIZE = 1000;
+    public static final int DEFAULT_RUN_HISTORY_PAGE_SIZE = 50;
+    public static final int MAX_RUN_HISTORY_PAGE_SIZE = 500;
+    public static final int DEFAULT_CHECK_QUERY_LIMIT = 100;
+    public static final int MAX_CHECK_QUERY_LIMIT = 1000;
+    public static final long DEFAULT_CHECK_QUERY_HOURS = 24;
+    public static final int DEFAULT_STATS_DAYS = 30;
+    public static final int MAX_STATS_DAYS = 366;
+    public static final int DEFAULT_LOAD_CONCURRENCY = 10;
+    public static final int DEFAULT_LOAD_SAMPLE_EVERY = 100;
+    public static final int MAX_LOAD_CONCURRENCY = 1000;
+    public static final int MAX_LOAD_ITERATIONS = 1_000_000;
+    public static final double MAX_LOAD_RATE_PER_SECOND = 10_000;
+    public static final long MAX_LOAD_DURATION_MS = 600_000;
+    public static final int STREAMING_BODY_THRESHOLD_BYTES = 256 * 1024;
 
     public static final String URL = "url";
     public static final String METHOD = "method";
     public static final String HEADERS = "headers";
     public static final String BODY = "body";
+    public static final String QUEUE_GROUP = "queueGroup";
+    public static final String CONNECT_TIMEOUT_MS = "connectTimeoutMs";
+    public static final String READ_TIMEOUT_MS = "readTimeoutMs";
+    public static final String DEADLINE_MS = "deadlineMs";
+    public static final String RATE_LIMIT_PER_SECOND = "rateLimitPerSecond";
+    public static final String RATE_LIMIT_BURST = "rateLimitBurst";
+    public static final String RATE_LIMIT_WAIT_MS = "rateLimitWaitMs";
 
     public static final Set<String> MANDATORY_FIELDS = Set.of(URL, METHOD);
     public static final Set<String> VALID_HTTP_METHODS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE");
@@ -32,6 +57,10 @@ public final class Constants {
     public static final String RECEIVED_BODY_VALUE = "receivedBodyValue";
     public static final String BODY_PATH_VALUE_CHECK_RESULT = "bodyPathValueCheckResult";
 
+    public static final String EXPECTED_MAX_LATENCY_MS = "expectedMaxLatencyMs";
+    public static final String RECEIVED_LATENCY_MS = "receivedLatencyMs";
+    public static final String LATENCY_CHECK_RESULT = "latencyCheckResult";
+
     public static final String EXPECTED_BODY = "expectedBody";
     public static final String COMPARED_BODY = "comparedBody";
     public static final String EXCLUDED_BODY_FIELDS = "excludedBodyFields";
@@ -39,9 +68,60 @@ public final class Constants {
     public static final String RECEIVED_BODY = "receivedBody";
     public static final String BODY_CHECK_RESULT = "bodyCheckResult";
     public static final String BODY_CHECK_ERROR = "bodyCheckError";
+    public static final String BODY_MISMATCH_PATH = "bodyMismatchPath";
+    public static final String RECEIVED_BODY_BYTES = "receivedBodyBytes";
+    public static final String MATCHED_ELEMENT_INDEX = "matchedElementIndex";
+    public static final String BODY_DIFF = "bodyDiff";
+    public static final String RECEIVED_BODY_HASH = "receivedBodyHash";
+    public static final String CAPTURE_BODY = "captureBody";
+    public static final String INVALID_JSON_BODY = "Response body is not valid JSON";
+
+    public static final String EXPECTED_ELEMENTS = "expectedElements";
+    public static final String ARRAY_MATCH_MODE = "arrayMatchMode";
+    public static final String EXPECTED_ELEMENT_COUNT = "expectedElementCount";
+    public static final String RECEIVED_ELEMENT_COUNT = "receivedElementCount";
+    public static final String MISSING_ELEMENT_INDEXES = "missingElementIndexes";
+    public static final String UNMATCHED_ELEMENT_INDEX = "unmatchedElementIndex";
+    public static final String ARRAY_CHECK_RESULT = "arrayCheckResult";
+    public static final String ARRAY_CHECK_ERROR = "arrayCheckError";
+
+    public static final String TIMINGS = "timings";
+    public static final String QUEUE_WAIT_NS = "queueWaitNs";
+    public static final String RATE_LIMIT_WAIT_NS = "rateLimitWaitNs";
+    public static final String NETWORK_NS = "networkNs";
+    public static final String TIME_TO_FIRST_BYTE_NS = "timeToFirstByteNs";
+    public static final String DOWNLOAD_NS = "downloadNs";
+    public static final String NORMALIZATION_NS = "normalizationNs";
+    public static final String CHECKS_NS = "checksNs";
+
+    public static final String TRUNCATED = "truncated";
+    public static final String ORIGINAL_BYTES = "originalBytes";
+    public static final String RESULT_LOG_OFFLOADED = "resultLogOffloaded";
+    public static final String RESULT_LOG_BYTES = "resultLogBytes";
+
+    public static final String LOAD_TEST = "loadTest";
+    public static final String LOAD_MODEL = "model";
+    public static final String LOAD_REQUESTS = "requests";
+    public static final String LOAD_ERRORS = "errors";
+    public static final String LOAD_ERROR_RATE = "errorRate";
+    public static final String LOAD_THROUGHPUT = "throughputPerSecond";
+    public static final String LOAD_DURATION_MS = "durationMs";
+    public static final String LOAD_LATENCY_MS = "latencyMs";
+    public static final String LOAD_SAMPLED_CHECKS = "sampledChecks";
+    public static final String LOAD_SAMPLED_FAILURES = "sampledFailures";
+    public static final String LOAD_FIRST_FAILED_SAMPLE = "firstFailedSample";
+    public static final String LOAD_FIRST_ERROR = "firstError";
+    public static final String LOAD_STOPPED_AT_DEADLINE = "stoppedAtDeadline";
 
     public static final String TEST_RUN_ERROR = "------------TEST RUN ERROR-------------";
+    public static final String TEST_RUN_ABORTED = "Test run aborted on shutdown";
+    public static final String TEST_RUN_CANCELLED = "Test run cancelled by request";
+    public static final String TEST_RUN_EXPIRED = "Test run deadline expired before execution";
     public static final String PASS = "----------------PASS-------------------";
     public static final String FAIL = "----------------FAIL-------------------";
     public static final String ERROR = "---------------ERROR-------------------";
+    public static final String QUEUED = "---------------QUEUED------------------";
+    public static final String RUNNING = "---------------RUNNING-----------------";
+    public static final String CANCELLED = "--------------CANCELLED----------------";
+    public static final String EXPIRED = "---------------EXPIRED-----------------";
 }
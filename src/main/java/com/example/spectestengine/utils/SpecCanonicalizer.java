@@ -0,0 +1,45 @@
+package com.example.spectestengine.utils;
+
+import static com.example.spectestengine.utils.Constants.BODY;
+
+import com.example.spectestengine.exception.InvalidSpecException;
+import com.example.spectestengine.model.SpecFormat;
+import com.example.spectestengine.validation.validator.SpecValidator;
+import com.example.spectestengine.validation.validator.SpecValidator.ValidatedSpec;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+
+/*
+Resolves, normalizes and validates a raw spec in one pass and extracts the request body
+in the spec's own format. Used at ingest, so runs and list endpoints work from the stored result.
+ */
+@Slf4j
+public final class SpecCanonicalizer {
+
+    private SpecCanonicalizer() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public record CanonicalSpec(SpecFormat format, ValidatedSpec validatedSpec, String requestBody, String contentHash) {
+        public String normalizedSpec() {
+            return validatedSpec.jsonSpecNode().toString();
+        }
+    }
+
+    public static CanonicalSpec canonicalize(String rawSpec) {
+        SpecFormat format = SpecFormatResolver.resolve(rawSpec);
+        JsonNode jsonSpecNode = SpecFormatNormalizer.normalizeToJson(rawSpec);
+        ValidatedSpec validatedSpec = SpecValidator.validate(jsonSpecNode);
+
+        String requestBody;
+        try {
+            requestBody = jsonSpecNode.has(BODY) ? SpecExtractor.extractRawBody(rawSpec) : null;
+        } catch (JsonProcessingException jsonProcessingException) {
+            log.warn("Failed to extract request body from specification", jsonProcessingException);
+            throw new InvalidSpecException("Failed to extract request body: %s".formatted(jsonProcessingException.getOriginalMessage()));
+        }
+
+        return new CanonicalSpec(format, validatedSpec, requestBody, ContentHasher.sha256(rawSpec));
+    }
+}
@@ -2,7 +2,9 @@ package com.example.spectestengine.utils;
 
 import com.example.spectestengine.dto.TestRunDTO;
 import com.example.spectestengine.model.TestRunEntity;
+import com.fasterxml.jackson.databind.JsonNode;
 
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
 public class TestRunMapper {
@@ -10,15 +12,24 @@ public class TestRunMapper {
         throw new IllegalStateException("Utility class");
     }
 
-    public static TestRunDTO mapToDTO(TestRunEntity runEntity) {
+    /*
+    The result log is decoded by ResultLogStore, which decides whether an offloaded log is loaded.
+     */
+    public static TestRunDTO mapToDTO(TestRunEntity runEntity, JsonNode testResultLog) {
         return new TestRunDTO(
                 runEntity.getId(),
                 runEntity.getSpec().getId(),
                 runEntity.getSpec().getFormat().getMediaType(),
                 runEntity.getStatus(),
-                SpecFormatMapper.fromJson(runEntity.getTestResultLog()),
-                runEntity.getStartedAt().truncatedTo(ChronoUnit.SECONDS),
-                runEntity.getFinishedAt().truncatedTo(ChronoUnit.SECONDS)
+                testResultLog,
+                truncateToSeconds(runEntity.getQueuedAt()),
+                truncateToSeconds(runEntity.getDeadlineAt()),
+                truncateToSeconds(runEntity.getStartedAt()),
+                truncateToSeconds(runEntity.getFinishedAt())
         );
     }
+
+    private static LocalDateTime truncateToSeconds(LocalDateTime dateTime) {
+        return dateTime == null ? null : dateTime.truncatedTo(ChronoUnit.SECONDS);
+    }
 }
@@ -1,7 +1,10 @@
 package com.example.spectestengine.utils;
 
 import com.example.spectestengine.dto.TestSpecDTO;
+import com.example.spectestengine.model.SpecFormat;
 import com.example.spectestengine.model.TestSpecEntity;
+import com.example.spectestengine.repository.TestSpecRow;
+import com.fasterxml.jackson.databind.util.RawValue;
 
 import java.time.temporal.ChronoUnit;
 
@@ -22,11 +25,48 @@ public final class TestSpecMapper {
         );
     }
 
+    public static TestSpecDTO mapToDTO(TestSpecRow specRow) {
+        return new TestSpecDTO(
+                specRow.id(),
+                specRow.name(),
+                specRow.format().getMediaType(),
+                getFormattedSpec(specRow.format(), specRow.spec(), specRow.normalizedSpec()),
+                specRow.createdAt().truncatedTo(ChronoUnit.SECONDS)
+        );
+    }
+
+    /*
+    Same DTO for JSON output only: a stored canonical form is copied to the output as is instead of parsed.
+     */
+    public static TestSpecDTO mapToRawJsonDTO(TestSpecRow specRow) {
+        if (specRow.normalizedSpec() == null || specRow.format() == SpecFormat.XML) {
+            return mapToDTO(specRow);
+        }
+        return new TestSpecDTO(
+                specRow.id(),
+                specRow.name(),
+                specRow.format().getMediaType(),
+                new RawValue(specRow.normalizedSpec()),
+                specRow.createdAt().truncatedTo(ChronoUnit.SECONDS)
+        );
+    }
+
     public static Object getFormattedSpec(TestSpecEntity specEntity) {
-        return switch (specEntity.getFormat()) {
-            case JSON -> SpecFormatMapper.fromJson(specEntity.getSpec());
-            case YAML -> SpecFormatMapper.fromYaml(specEntity.getSpec());
-            case XML -> SpecFormatMapper.fromXml(specEntity.getSpec());
+        return getFormattedSpec(specEntity.getFormat(), specEntity.getSpec(), specEntity.getNormalizedSpec());
+    }
+
+    /*
+    JSON and YAML specs are served from the stored canonical form, which is the same tree as the
+    parsed raw spec. XML is parsed again: the canonical form has its values coerced to numbers and booleans.
+     */
+    public static Object getFormattedSpec(SpecFormat format, String rawSpec, String normalizedSpec) {
+        if (normalizedSpec != null && format != SpecFormat.XML) {
+            return SpecFormatMapper.fromJson(normalizedSpec);
+        }
+        return switch (format) {
+            case JSON -> SpecFormatMapper.fromJson(rawSpec);
+            case YAML -> SpecFormatMapper.fromYaml(rawSpec);
+            case XML -> SpecFormatMapper.fromXml(rawSpec);
         };
     }
 }
@@ -1,9 +1,8 @@
 package com.example.spectestengine.validation.validator;
 
 import com.example.spectestengine.exception.InvalidSpecException;
-import com.example.spectestengine.utils.SpecFormatNormalizer;
+import com.example.spectestengine.utils.SpecCanonicalizer;
 import com.example.spectestengine.validation.annotation.ValidSpec;
-import com.fasterxml.jackson.databind.JsonNode;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
 import lombok.extern.slf4j.Slf4j;
@@ -14,11 +13,10 @@ public class AnnotationSpecValidator implements ConstraintValidator<ValidSpec, S
     public boolean isValid(String rawSpec, ConstraintValidatorContext context) {
         try {
             /*
-            Since the work and execution of the test is supposed to be in json format,
-            it is necessary to normalize and validate rawSpec here
+            Same normalization, validation and body extraction as the canonical form stored at ingest,
+            so a spec accepted here is never rejected when it is saved
              */
-            JsonNode normalizedJsonSpec = SpecFormatNormalizer.normalizeToJson(rawSpec);
-            SpecValidator.validate(normalizedJsonSpec);
+            SpecCanonicalizer.canonicalize(rawSpec);
             return true;
         } catch (InvalidSpecException exception) {
             addConstraintViolation(context, exception.getMessage());
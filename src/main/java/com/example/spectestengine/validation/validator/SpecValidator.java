@@ -3,11 +3,14 @@ package com.example.spectestengine.validation.validator;
 import static com.example.spectestengine.utils.Constants.*;
 
 import com.example.spectestengine.exception.InvalidSpecException;
+import com.example.spectestengine.model.ArrayMatchMode;
+import com.example.spectestengine.model.RateLimit;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.URI;
+import java.util.Arrays;
 
 @Slf4j
 public class SpecValidator {
@@ -16,7 +19,8 @@ public class SpecValidator {
         throw new IllegalStateException("Validator class - cannot be instantiated");
     }
 
-    public record ValidatedSpec(JsonNode jsonSpecNode, String url, String method) {
+    public record ValidatedSpec(JsonNode jsonSpecNode, String url, String method, String queueGroup,
+                                Long connectTimeoutMs, Long readTimeoutMs, Long deadlineMs, RateLimit rateLimit) {
     }
 
     public static ValidatedSpec validate(JsonNode jsonSpec) {
@@ -28,8 +32,14 @@ public class SpecValidator {
                 .validateUrl()
                 .validateHeaders()
                 .validateExpectedStatusCode()
+                .validateExpectedMaxLatency()
                 .validateBody()
                 .validateExcludedBodyFields()
+                .validateCaptureBody()
+                .validateExpectedElements()
+                .validateQueueGroup()
+                .validateTimeouts()
+                .validateRateLimit()
                 .build();
     }
 
@@ -44,6 +54,11 @@ public class SpecValidator {
         private final JsonNode jsonSpecNode;
         private String url;
         private String method;
+        private String queueGroup;
+        private Long connectTimeoutMs;
+        private Long readTimeoutMs;
+        private Long deadlineMs;
+        private RateLimit rateLimit;
 
         protected ValidationChain validateSpecNotEmpty(String jsonSpec) {
             if (jsonSpec == null || jsonSpec.trim().isEmpty() || "null".equalsIgnoreCase(jsonSpec.trim())) {
@@ -96,11 +111,11 @@ public class SpecValidator {
         protected static boolean isUrlValid(String url) {
             try {
                 URI uri = new URI(url);
-                if (uri.isAbsolute()) {
+                if (uri.isAbsolute() && uri.getHost() != null) {
                     return true;
                 }
-                log.error("URL is not has absolute path: '{}'", url);
-                throw new InvalidSpecException("URL must be absolute: '%s'".formatted(uri));
+                log.error("URL is not absolute or has no host: '{}'", url);
+                throw new InvalidSpecException("URL must be absolute with a host: '%s'".formatted(uri));
             } catch (Exception exception) {
                 return false;
             }
@@ -134,6 +149,15 @@ public class SpecValidator {
             return this;
         }
 
+        protected ValidationChain validateExpectedMaxLatency() {
+            if (jsonSpecNode.has(EXPECTED_MAX_LATENCY_MS)
+                    && (!jsonSpecNode.get(EXPECTED_MAX_LATENCY_MS).isNumber() || jsonSpecNode.get(EXPECTED_MAX_LATENCY_MS).asDouble() <= 0)) {
+                log.error("JSON specification expected max latency is not a positive number: '{}'", jsonSpecNode.get(EXPECTED_MAX_LATENCY_MS));
+                throw new InvalidSpecException("Field 'expectedMaxLatencyMs' must be a positive number");
+            }
+            return this;
+        }
+
         protected ValidationChain validateBody() {
             if (jsonSpecNode.has(BODY) && !jsonSpecNode.get(BODY).isContainerNode()) {
                 log.error("JSON specification body is not object or array: '{}'", jsonSpecNode.get(BODY));
@@ -150,8 +174,108 @@ public class SpecValidator {
             return this;
         }
 
+        protected ValidationChain validateCaptureBody() {
+            if (jsonSpecNode.has(CAPTURE_BODY) && !jsonSpecNode.get(CAPTURE_BODY).isBoolean()
+                    && !jsonSpecNode.get(CAPTURE_BODY).asText().matches("true|false")) {
+                log.error("Field 'captureBody' must be a boolean: '{}'", jsonSpecNode.get(CAPTURE_BODY));
+                throw new InvalidSpecException("Field 'captureBody' must be a boolean");
+            }
+            return this;
+        }
+
+        protected ValidationChain validateExpectedElements() {
+            if (jsonSpecNode.has(EXPECTED_ELEMENTS)) {
+                JsonNode expectedElements = jsonSpecNode.get(EXPECTED_ELEMENTS);
+                if (!expectedElements.isArray()) {
+                    log.error("Field 'expectedElements' must be an array: '{}'", expectedElements);
+                    throw new InvalidSpecException("Field 'expectedElements' must be an array of objects");
+                }
+                expectedElements.forEach(expectedElement -> {
+                    if (!expectedElement.isObject()) {
+                        log.error("Element of 'expectedElements' is not an object: '{}'", expectedElement);
+                        throw new InvalidSpecException("Field 'expectedElements' must be an array of objects");
+                    }
+                });
+            }
+
+            if (jsonSpecNode.has(ARRAY_MATCH_MODE)) {
+                String arrayMatchMode = jsonSpecNode.get(ARRAY_MATCH_MODE).asText().toUpperCase();
+                if (Arrays.stream(ArrayMatchMode.values()).noneMatch(mode -> mode.name().equals(arrayMatchMode))) {
+                    log.error("Unsupported array match mode: '{}'", jsonSpecNode.get(ARRAY_MATCH_MODE));
+                    throw new InvalidSpecException("Field 'arrayMatchMode' must be one of: %s".formatted(Arrays.toString(ArrayMatchMode.values())));
+                }
+            }
+
+            if (jsonSpecNode.has(EXPECTED_ELEMENT_COUNT)) {
+                JsonNode countNode = jsonSpecNode.get(EXPECTED_ELEMENT_COUNT);
+                if (!countNode.isIntegralNumber() || !countNode.canConvertToInt() || countNode.asInt() < 0) {
+                    log.error("Field 'expectedElementCount' must be a non-negative integer: '{}'", countNode);
+                    throw new InvalidSpecException("Field 'expectedElementCount' must be a non-negative integer");
+                }
+            }
+            return this;
+        }
+
+        protected ValidationChain validateQueueGroup() {
+            if (!jsonSpecNode.has(QUEUE_GROUP)) {
+                return this;
+            }
+
+            if (!jsonSpecNode.get(QUEUE_GROUP).isTextual() || jsonSpecNode.get(QUEUE_GROUP).asText().isBlank()) {
+                log.error("Field 'queueGroup' must be a non-blank string: '{}'", jsonSpecNode.get(QUEUE_GROUP));
+                throw new InvalidSpecException("Field 'queueGroup' must be a non-blank string");
+            }
+            this.queueGroup = jsonSpecNode.get(QUEUE_GROUP).asText();
+            return this;
+        }
+
+        protected ValidationChain validateTimeouts() {
+            this.connectTimeoutMs = getPositiveMillis(CONNECT_TIMEOUT_MS);
+            this.readTimeoutMs = getPositiveMillis(READ_TIMEOUT_MS);
+            this.deadlineMs = getPositiveMillis(DEADLINE_MS);
+            return this;
+        }
+
+        private Long getPositiveMillis(String field) {
+            if (!jsonSpecNode.has(field)) {
+                return null;
+            }
+
+            JsonNode millisNode = jsonSpecNode.get(field);
+            if (!millisNode.isIntegralNumber() || !millisNode.canConvertToLong() || millisNode.asLong() <= 0) {
+                log.error("Field '{}' must be a positive number of milliseconds: '{}'", field, millisNode);
+                throw new InvalidSpecException("Field '%s' must be a positive number of milliseconds".formatted(field));
+            }
+            return millisNode.asLong();
+        }
+
+        protected ValidationChain validateRateLimit() {
+            Double requestsPerSecond = null;
+            if (jsonSpecNode.has(RATE_LIMIT_PER_SECOND)) {
+                JsonNode rateNode = jsonSpecNode.get(RATE_LIMIT_PER_SECOND);
+                if (!rateNode.isNumber() || rateNode.asDouble() <= 0) {
+                    log.error("Field 'rateLimitPerSecond' must be a positive number: '{}'", rateNode);
+                    throw new InvalidSpecException("Field 'rateLimitPerSecond' must be a positive number");
+                }
+                requestsPerSecond = rateNode.asDouble();
+            }
+
+            Integer burst = null;
+            if (jsonSpecNode.has(RATE_LIMIT_BURST)) {
+                JsonNode burstNode = jsonSpecNode.get(RATE_LIMIT_BURST);
+                if (!burstNode.isIntegralNumber() || !burstNode.canConvertToInt() || burstNode.asInt() <= 0) {
+                    log.error("Field 'rateLimitBurst' must be a positive integer: '{}'", burstNode);
+                    throw new InvalidSpecException("Field 'rateLimitBurst' must be a positive integer");
+                }
+                burst = burstNode.asInt();
+            }
+
+            this.rateLimit = new RateLimit(requestsPerSecond, burst);
+            return this;
+        }
+
         protected ValidatedSpec build() {
-            return new ValidatedSpec(jsonSpecNode, url, method);
+            return new ValidatedSpec(jsonSpecNode, url, method, queueGroup, connectTimeoutMs, readTimeoutMs, deadlineMs, rateLimit);
         }
     }
 }
\ No newline at end of file
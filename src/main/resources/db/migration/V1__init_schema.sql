@@ -0,0 +1,149 @@
+CREATE TABLE test_specs
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name            VARCHAR(255) NOT NULL UNIQUE,
+    format          VARCHAR(255) NOT NULL,
+    spec            TEXT,
+    normalized_spec TEXT,
+    request_body    TEXT,
+    content_hash    VARCHAR(64),
+    created_at      TIMESTAMP(6)
+);
+
+-- Run and check ids are allocated in blocks of 50 (allocationSize of the entities)
+CREATE SEQUENCE test_runs_seq INCREMENT BY 50;
+CREATE SEQUENCE test_run_checks_seq INCREMENT BY 50;
+
+-- Runs are range partitioned by month of queued_at, which is set on insert and never updated,
+-- so a finished run stays in its partition. The partition key has to be part of the primary key.
+CREATE TABLE test_runs
+(
+    id                    BIGINT       NOT NULL,
+    spec_id               BIGINT       NOT NULL REFERENCES test_specs (id),
+    status                VARCHAR(255),
+    executed_by           VARCHAR(255),
+    test_result_log       JSONB,
+    compressed_result_log BYTEA,
+    result_log_offloaded  BOOLEAN      NOT NULL DEFAULT FALSE,
+    result_log_bytes      INTEGER,
+    queued_at             TIMESTAMP(6) NOT NULL,
+    deadline_at           TIMESTAMP(6),
+    started_at            TIMESTAMP(6),
+    finished_at           TIMESTAMP(6),
+    PRIMARY KEY (id, queued_at)
+) PARTITION BY RANGE (queued_at);
+
+-- Catches rows outside the monthly partitions, e.g. when the maintenance job did not run ahead in time
+CREATE TABLE test_runs_default PARTITION OF test_runs DEFAULT;
+
+CREATE INDEX idx_test_runs_status ON test_runs (status);
+CREATE INDEX idx_test_runs_spec_id ON test_runs (spec_id, id);
+CREATE INDEX idx_test_runs_spec_queued_at ON test_runs (spec_id, queued_at);
+
+CREATE TABLE test_run_checks
+(
+    id               BIGINT       NOT NULL PRIMARY KEY,
+    run_id           BIGINT       NOT NULL,
+    spec_id          BIGINT       NOT NULL,
+    check_type       VARCHAR(32)  NOT NULL,
+    passed           BOOLEAN      NOT NULL,
+    host             VARCHAR(255),
+    expected_summary VARCHAR(255),
+    received_summary VARCHAR(255),
+    finished_at      TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_test_run_checks_triage ON test_run_checks (check_type, passed, host, finished_at);
+CREATE INDEX idx_test_run_checks_run_id ON test_run_checks (run_id);
+
+CREATE TABLE test_run_log_blobs
+(
+    run_id BIGINT NOT NULL PRIMARY KEY,
+    data   BYTEA  NOT NULL
+);
+
+CREATE TABLE test_run_tasks
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    run_id     BIGINT       NOT NULL UNIQUE,
+    queue_key  VARCHAR(255) NOT NULL,
+    priority   SMALLINT     NOT NULL,
+    state      VARCHAR(255) NOT NULL,
+    claimed_by VARCHAR(255),
+    claimed_at TIMESTAMP(6),
+    created_at TIMESTAMP(6)
+);
+
+CREATE INDEX idx_test_run_tasks_claim ON test_run_tasks (state, priority, id);
+CREATE INDEX idx_test_run_tasks_claimed_by ON test_run_tasks (claimed_by);
+
+CREATE TABLE test_run_key_leases
+(
+    queue_key  VARCHAR(255) NOT NULL PRIMARY KEY,
+    node_id    VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_test_run_key_leases_node ON test_run_key_leases (node_id);
+
+-- Creates the partitions test_runs_pYYYY_MM of the current and the next 'months_ahead' months.
+-- A month whose rows already went to test_runs_default is skipped with a warning.
+-- Serialized by an advisory lock, so cluster nodes can call it at the same time.
+CREATE FUNCTION create_test_runs_partitions(months_ahead INTEGER) RETURNS INTEGER AS
+$$
+DECLARE
+    first_month    DATE    := date_trunc('month', localtimestamp)::DATE;
+    month_start    TIMESTAMP;
+    partition_name TEXT;
+    created        INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('test_runs_partitions'));
+    FOR month_offset IN 0..months_ahead
+        LOOP
+            month_start := first_month + make_interval(months => month_offset);
+            partition_name := 'test_runs_p' || to_char(month_start, 'YYYY_MM');
+            CONTINUE WHEN to_regclass(partition_name) IS NOT NULL;
+            BEGIN
+                EXECUTE format('CREATE TABLE %I PARTITION OF test_runs FOR VALUES FROM (%L) TO (%L)',
+                               partition_name, month_start, month_start + INTERVAL '1 month');
+                created := created + 1;
+            EXCEPTION
+                WHEN check_violation THEN
+                    RAISE WARNING 'test_runs_default holds rows of %, partition not created', partition_name;
+            END;
+        END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Removes the monthly partitions whose whole range is before 'cutoff' and returns their names.
+-- The check rows of their runs are deleted; the partition is dropped together with the offloaded logs,
+-- or with 'archive' detached and kept as a standalone table, its offloaded logs stay in test_run_log_blobs.
+CREATE FUNCTION drop_expired_test_runs_partitions(cutoff TIMESTAMP, archive BOOLEAN) RETURNS SETOF TEXT AS
+$$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('test_runs_partitions'));
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'test_runs'::REGCLASS
+          AND c.relname ~ '^test_runs_p[0-9]{4}_[0-9]{2}$'
+          AND to_date(substr(c.relname, 12), 'YYYY_MM') + INTERVAL '1 month' <= cutoff
+        ORDER BY c.relname
+        LOOP
+            EXECUTE format('DELETE FROM test_run_checks WHERE run_id IN (SELECT id FROM %I)', partition_name);
+            IF archive THEN
+                EXECUTE format('ALTER TABLE test_runs DETACH PARTITION %I', partition_name);
+            ELSE
+                EXECUTE format('DELETE FROM test_run_log_blobs WHERE run_id IN (SELECT id FROM %I)', partition_name);
+                EXECUTE format('DROP TABLE %I', partition_name);
+            END IF;
+            RETURN NEXT partition_name;
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_test_runs_partitions(2);
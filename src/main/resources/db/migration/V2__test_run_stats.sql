@@ -0,0 +1,22 @@
+-- Daily rollups of finished runs per spec, merged in by RunStatsCollector.
+-- duration_histogram is a compressed HdrHistogram of run durations in ms, so buckets can be merged
+-- into percentiles over any range of days; the percentile columns are those of the bucket itself.
+CREATE TABLE test_run_stats
+(
+    spec_id            BIGINT NOT NULL,
+    bucket_date        DATE   NOT NULL,
+    passed             BIGINT NOT NULL DEFAULT 0,
+    failed             BIGINT NOT NULL DEFAULT 0,
+    errors             BIGINT NOT NULL DEFAULT 0,
+    cancelled          BIGINT NOT NULL DEFAULT 0,
+    expired            BIGINT NOT NULL DEFAULT 0,
+    flips              BIGINT NOT NULL DEFAULT 0,
+    last_pass_at       TIMESTAMP(6),
+    last_fail_at       TIMESTAMP(6),
+    duration_histogram BYTEA,
+    duration_p50_ms    BIGINT,
+    duration_p95_ms    BIGINT,
+    duration_p99_ms    BIGINT,
+    duration_max_ms    BIGINT,
+    PRIMARY KEY (spec_id, bucket_date)
+);
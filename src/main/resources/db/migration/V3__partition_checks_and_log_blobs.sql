@@ -0,0 +1,203 @@
+-- test_run_checks and test_run_log_blobs carry the queued_at of their run and are partitioned by month like
+-- test_runs, so retention removes a month of runs, checks and offloaded logs together instead of deleting rows.
+-- Existing rows are copied with the queued_at of their run; rows whose run is gone are dropped.
+ALTER TABLE test_run_checks RENAME TO test_run_checks_unpartitioned;
+ALTER TABLE test_run_checks_unpartitioned RENAME CONSTRAINT test_run_checks_pkey TO test_run_checks_unpartitioned_pkey;
+DROP INDEX idx_test_run_checks_triage;
+DROP INDEX idx_test_run_checks_run_id;
+
+ALTER TABLE test_run_log_blobs RENAME TO test_run_log_blobs_unpartitioned;
+ALTER TABLE test_run_log_blobs_unpartitioned RENAME CONSTRAINT test_run_log_blobs_pkey TO test_run_log_blobs_unpartitioned_pkey;
+
+CREATE TABLE test_run_checks
+(
+    id               BIGINT       NOT NULL,
+    run_id           BIGINT       NOT NULL,
+    spec_id          BIGINT       NOT NULL,
+    check_type       VARCHAR(32)  NOT NULL,
+    passed           BOOLEAN      NOT NULL,
+    host             VARCHAR(255),
+    expected_summary VARCHAR(255),
+    received_summary VARCHAR(255),
+    queued_at        TIMESTAMP(6) NOT NULL,
+    finished_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, queued_at)
+) PARTITION BY RANGE (queued_at);
+
+CREATE TABLE test_run_checks_default PARTITION OF test_run_checks DEFAULT;
+
+CREATE INDEX idx_test_run_checks_triage ON test_run_checks (check_type, passed, host, finished_at);
+CREATE INDEX idx_test_run_checks_run_id ON test_run_checks (run_id);
+
+CREATE TABLE test_run_log_blobs
+(
+    run_id    BIGINT       NOT NULL,
+    queued_at TIMESTAMP(6) NOT NULL,
+    data      BYTEA        NOT NULL,
+    PRIMARY KEY (run_id, queued_at)
+) PARTITION BY RANGE (queued_at);
+
+CREATE TABLE test_run_log_blobs_default PARTITION OF test_run_log_blobs DEFAULT;
+
+-- Creates the partition <parent_table>_pYYYY_MM of the month starting at 'month_start' unless it exists.
+-- Rows of that month that already went to <parent_table>_default are moved into the new partition:
+-- the default partition is detached, the month partition created, the rows moved and the default attached again.
+-- Detaching locks the parent table until commit, so concurrent inserts wait instead of failing.
+CREATE FUNCTION create_month_partition(parent_table TEXT, month_start TIMESTAMP) RETURNS BOOLEAN AS
+$$
+DECLARE
+    partition_name    TEXT      := parent_table || '_p' || to_char(month_start, 'YYYY_MM');
+    default_partition TEXT      := parent_table || '_default';
+    month_end         TIMESTAMP := month_start + INTERVAL '1 month';
+    has_default_rows  BOOLEAN;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('SELECT EXISTS (SELECT 1 FROM %I WHERE queued_at >= %L AND queued_at < %L)',
+                   default_partition, month_start, month_end) INTO has_default_rows;
+    IF NOT has_default_rows THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, parent_table, month_start, month_end);
+        RETURN TRUE;
+    END IF;
+
+    EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent_table, default_partition);
+    EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, parent_table, month_start, month_end);
+    EXECUTE format('WITH moved AS (DELETE FROM %I WHERE queued_at >= %L AND queued_at < %L RETURNING *) '
+                       || 'INSERT INTO %I SELECT * FROM moved',
+                   default_partition, month_start, month_end, partition_name);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I DEFAULT', parent_table, default_partition);
+    RAISE NOTICE 'Moved rows of % out of %', partition_name, default_partition;
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Creates the partitions of test_runs, test_run_checks and test_run_log_blobs for the current and the next
+-- 'months_ahead' months and returns how many were created. A month whose rows already went to a default
+-- partition gets its partition with those rows moved in.
+-- Serialized by an advisory lock, so cluster nodes can call it at the same time.
+CREATE OR REPLACE FUNCTION create_test_runs_partitions(months_ahead INTEGER) RETURNS INTEGER AS
+$$
+DECLARE
+    first_month  DATE    := date_trunc('month', localtimestamp)::DATE;
+    month_start  TIMESTAMP;
+    parent_table TEXT;
+    created      INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('test_runs_partitions'));
+    FOR month_offset IN 0..months_ahead
+        LOOP
+            month_start := first_month + make_interval(months => month_offset);
+            FOREACH parent_table IN ARRAY ARRAY ['test_runs', 'test_run_checks', 'test_run_log_blobs']
+                LOOP
+                    IF create_month_partition(parent_table, month_start) THEN
+                        created := created + 1;
+                    END IF;
+                END LOOP;
+        END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Removes the months whose whole range is before 'cutoff' and returns the names of their test_runs partitions.
+-- The test_run_checks and test_run_log_blobs partitions of a month go with it: all dropped, or with 'archive'
+-- detached and kept as standalone tables. With 'archive' the expired rows of the default partitions are first
+-- moved into partitions of their month, so they are detached as well; otherwise delete_expired_default_rows
+-- removes them.
+CREATE OR REPLACE FUNCTION drop_expired_test_runs_partitions(cutoff TIMESTAMP, archive BOOLEAN) RETURNS SETOF TEXT AS
+$$
+DECLARE
+    month_start    TIMESTAMP;
+    partition_name TEXT;
+    month_suffix   TEXT;
+    parent_table   TEXT;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('test_runs_partitions'));
+    IF archive THEN
+        FOR month_start IN
+            SELECT DISTINCT date_trunc('month', queued_at)
+            FROM (SELECT queued_at FROM test_runs_default
+                  UNION ALL
+                  SELECT queued_at FROM test_run_checks_default
+                  UNION ALL
+                  SELECT queued_at FROM test_run_log_blobs_default) default_rows
+            WHERE queued_at < date_trunc('month', cutoff)
+            LOOP
+                FOREACH parent_table IN ARRAY ARRAY ['test_runs', 'test_run_checks', 'test_run_log_blobs']
+                    LOOP
+                        PERFORM create_month_partition(parent_table, month_start);
+                    END LOOP;
+            END LOOP;
+    END IF;
+
+    FOR partition_name IN
+        SELECT c.relname
+        FROM pg_inherits i
+                 JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'test_runs'::REGCLASS
+          AND c.relname ~ '^test_runs_p[0-9]{4}_[0-9]{2}$'
+          AND to_date(substr(c.relname, 12), 'YYYY_MM') + INTERVAL '1 month' <= cutoff
+        ORDER BY c.relname
+        LOOP
+            month_suffix := substr(partition_name, 10);
+            FOREACH parent_table IN ARRAY ARRAY ['test_runs', 'test_run_checks', 'test_run_log_blobs']
+                LOOP
+                    CONTINUE WHEN to_regclass(parent_table || month_suffix) IS NULL;
+                    IF archive THEN
+                        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', parent_table, parent_table || month_suffix);
+                    ELSE
+                        EXECUTE format('DROP TABLE %I', parent_table || month_suffix);
+                    END IF;
+                END LOOP;
+            RETURN NEXT partition_name;
+        END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Deletes up to 'batch_size' rows of months before the month of 'cutoff' from each default partition and
+-- returns how many were deleted. Rows only end up there when partitions were not created in time; the caller
+-- repeats it until it returns 0, so no single statement holds locks on a large default partition for long.
+CREATE FUNCTION delete_expired_default_rows(cutoff TIMESTAMP, batch_size INTEGER) RETURNS INTEGER AS
+$$
+DECLARE
+    default_partition TEXT;
+    deleted_rows      INTEGER;
+    total_rows        INTEGER := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('test_runs_partitions'));
+    FOREACH default_partition IN ARRAY ARRAY ['test_run_checks_default', 'test_run_log_blobs_default', 'test_runs_default']
+        LOOP
+            EXECUTE format('DELETE FROM %I WHERE ctid IN (SELECT ctid FROM %I WHERE queued_at < %L LIMIT %s)',
+                           default_partition, default_partition, date_trunc('month', cutoff), batch_size);
+            GET DIAGNOSTICS deleted_rows = ROW_COUNT;
+            total_rows := total_rows + deleted_rows;
+        END LOOP;
+    RETURN total_rows;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Month partitions of the new tables for every month test_runs already has, then the existing rows
+SELECT create_month_partition(parent_table, to_date(substr(c.relname, 12), 'YYYY_MM')::TIMESTAMP)
+FROM pg_inherits i
+         JOIN pg_class c ON c.oid = i.inhrelid
+         CROSS JOIN (VALUES ('test_run_checks'), ('test_run_log_blobs')) AS parents (parent_table)
+WHERE i.inhparent = 'test_runs'::REGCLASS
+  AND c.relname ~ '^test_runs_p[0-9]{4}_[0-9]{2}$';
+
+INSERT INTO test_run_checks (id, run_id, spec_id, check_type, passed, host, expected_summary, received_summary,
+                             queued_at, finished_at)
+SELECT c.id, c.run_id, c.spec_id, c.check_type, c.passed, c.host, c.expected_summary, c.received_summary,
+       r.queued_at, c.finished_at
+FROM test_run_checks_unpartitioned c
+         JOIN test_runs r ON r.id = c.run_id;
+
+INSERT INTO test_run_log_blobs (run_id, queued_at, data)
+SELECT b.run_id, r.queued_at, b.data
+FROM test_run_log_blobs_unpartitioned b
+         JOIN test_runs r ON r.id = b.run_id;
+
+DROP TABLE test_run_checks_unpartitioned;
+DROP TABLE test_run_log_blobs_unpartitioned;
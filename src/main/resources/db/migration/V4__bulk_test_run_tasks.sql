@@ -0,0 +1,5 @@
+-- Tasks of bulk requests are flagged, so a node claims at most 'bulk-concurrency' of them at a time.
+ALTER TABLE test_run_tasks ADD COLUMN bulk BOOLEAN NOT NULL DEFAULT FALSE;
+
+DROP INDEX idx_test_run_tasks_claim;
+CREATE INDEX idx_test_run_tasks_claim ON test_run_tasks (state, bulk, priority, id);
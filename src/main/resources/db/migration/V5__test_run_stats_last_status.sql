@@ -0,0 +1,3 @@
+-- Status of the latest executed run merged into a bucket, so flips are derived from the stored outcome
+-- under the row lock instead of per node.
+ALTER TABLE test_run_stats ADD COLUMN last_status VARCHAR(255);
@@ -0,0 +1,211 @@
+package com.example.spectestengine.engine;
+
+import static com.example.spectestengine.utils.Constants.CANCELLED;
+import static com.example.spectestengine.utils.Constants.FAIL;
+import static com.example.spectestengine.utils.Constants.PASS;
+import static com.example.spectestengine.utils.Constants.QUEUED;
+import static com.example.spectestengine.utils.Constants.RUNNING;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.spectestengine.model.TestRunEntity;
+import com.example.spectestengine.repository.TestRunCheckRepository;
+import com.example.spectestengine.repository.TestRunRepository;
+import com.example.spectestengine.repository.TestRunTaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class RunResultWriterTest {
+    private static final String NODE = "node-a";
+    private static final String OTHER_NODE = "node-b";
+
+    private final TestRunRepository testRunRepository = mock(TestRunRepository.class);
+    private final TestRunTaskRepository testRunTaskRepository = mock(TestRunTaskRepository.class);
+    private final TestRunCheckRepository testRunCheckRepository = mock(TestRunCheckRepository.class);
+    private final ResultLogStore resultLogStore = mock(ResultLogStore.class);
+    private final RunStatsCollector runStatsCollector = mock(RunStatsCollector.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final Map<Long, TestRunEntity> storedRuns = new ConcurrentHashMap<>();
+    private RunResultWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(testRunRepository.findAllByIdInForUpdate(anyCollection())).thenAnswer(invocation ->
+                lockedRows(invocation.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void ownedResultsAreSavedInOneBatch() throws Exception {
+        writer = newWriter(true, 3, 1000, 100);
+        store(run(1L, QUEUED, null));
+        store(run(2L, RUNNING, NODE));
+        store(run(3L, RUNNING, NODE));
+
+        List<CompletableFuture<TestRunEntity>> futures = List.of(
+                writer.submit(run(1L, PASS, NODE), true),
+                writer.submit(run(2L, FAIL, NODE), true),
+                writer.submit(run(3L, PASS, NODE), false));
+
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        verify(testRunRepository, times(1)).findAllByIdInForUpdate(anyCollection());
+        verify(testRunRepository, times(3)).save(any(TestRunEntity.class));
+        verify(testRunTaskRepository).deleteByRunIdIn(List.of(1L, 2L, 3L));
+        verify(runStatsCollector, times(2)).record(any(TestRunEntity.class), eq(true));
+        verify(runStatsCollector, times(1)).record(any(TestRunEntity.class), eq(false));
+        assertThat(futures).allSatisfy(future -> assertThat(future.get(1, TimeUnit.SECONDS).getExecutedBy()).isEqualTo(NODE));
+    }
+
+    @Test
+    void resultOfRunCancelledOrTakenOverIsDiscarded() throws Exception {
+        writer = newWriter(true, 2, 1000, 100);
+        store(run(1L, CANCELLED, null));
+        store(run(2L, RUNNING, OTHER_NODE));
+
+        CompletableFuture<TestRunEntity> cancelled = writer.submit(run(1L, PASS, NODE), true);
+        CompletableFuture<TestRunEntity> takenOver = writer.submit(run(2L, PASS, NODE), true);
+
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        assertThat(cancelled.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo(CANCELLED);
+        assertThat(takenOver.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo(RUNNING);
+        assertThat(takenOver.get().getExecutedBy()).isEqualTo(OTHER_NODE);
+        verify(testRunRepository, never()).save(any(TestRunEntity.class));
+        verify(resultLogStore, never()).offload(any());
+        verify(testRunTaskRepository, never()).deleteByRunIdIn(anyCollection());
+        verify(runStatsCollector, never()).record(any(), anyBoolean());
+    }
+
+    @Test
+    void resultOfDeletedRunIsNeverSaved() throws Exception {
+        writer = newWriter(false, 1, 0, 100);
+        TestRunEntity finishedRun = run(1L, PASS, NODE);
+
+        CompletableFuture<TestRunEntity> future = writer.submit(finishedRun, true);
+
+        assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(finishedRun);
+        verify(testRunRepository, never()).save(any(TestRunEntity.class));
+        verify(runStatsCollector, never()).record(any(), anyBoolean());
+    }
+
+    @Test
+    void failedBatchIsRetriedOneResultAtATime() throws Exception {
+        writer = newWriter(false, 3, 1000, 100);
+        store(run(1L, RUNNING, NODE));
+        store(run(2L, RUNNING, NODE));
+        store(run(3L, RUNNING, NODE));
+        when(testRunRepository.save(argThat((TestRunEntity run) -> run != null && run.getId() == 2L)))
+                .thenThrow(new IllegalStateException("constraint violation"));
+
+        List<CompletableFuture<TestRunEntity>> futures = List.of(
+                writer.submit(run(1L, PASS, NODE), true),
+                writer.submit(run(2L, PASS, NODE), true),
+                writer.submit(run(3L, PASS, NODE), true));
+
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        assertThat(futures).allSatisfy(future -> assertThat(future).succeedsWithin(Duration.ofSeconds(1)));
+        verify(runStatsCollector).record(argThat(run -> run.getId() == 1L), anyBoolean());
+        verify(runStatsCollector).record(argThat(run -> run.getId() == 3L), anyBoolean());
+        verify(runStatsCollector, never()).record(argThat(run -> run.getId() == 2L), anyBoolean());
+    }
+
+    /*
+    The writer thread is held in the first batch so the buffer stays full. The interrupted submit must
+    not write on its own thread: its result is written by the writer thread and the interrupt is kept.
+     */
+    @Test
+    void interruptedSubmitIsWrittenByTheWriterThread() throws Exception {
+        writer = newWriter(false, 1, 0, 1);
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        Set<String> lockingThreads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            lockingThreads.add(Thread.currentThread().getName());
+            writerBlocked.countDown();
+            releaseWriter.await(5, TimeUnit.SECONDS);
+            return lockedRows(invocation.getArgument(0));
+        }).when(testRunRepository).findAllByIdInForUpdate(anyCollection());
+        store(run(1L, RUNNING, NODE));
+        store(run(2L, RUNNING, NODE));
+        store(run(3L, RUNNING, NODE));
+
+        CompletableFuture<TestRunEntity> first = writer.submit(run(1L, PASS, NODE), true);
+        assertThat(writerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<TestRunEntity> buffered = writer.submit(run(2L, PASS, NODE), true);
+
+        AtomicBoolean interruptKept = new AtomicBoolean();
+        CompletableFuture<CompletableFuture<TestRunEntity>> interrupted = new CompletableFuture<>();
+        Thread worker = Thread.ofPlatform().name("test-run-worker").start(() -> {
+            interrupted.complete(writer.submit(run(3L, PASS, NODE), true));
+            interruptKept.set(Thread.currentThread().isInterrupted());
+        });
+        TimeUnit.MILLISECONDS.sleep(100);
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+        assertThat(interruptKept).isTrue();
+
+        releaseWriter.countDown();
+        assertThat(writer.flush(Duration.ofSeconds(5))).isTrue();
+        assertThat(List.of(first, buffered, interrupted.get(1, TimeUnit.SECONDS)))
+                .allSatisfy(future -> assertThat(future.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo(PASS));
+        assertThat(lockingThreads).containsOnly("test-run-result-writer");
+        verify(testRunRepository, times(3)).save(any(TestRunEntity.class));
+    }
+
+    private RunResultWriter newWriter(boolean durableQueue, int batchSize, long maxDelayMs, int capacity) {
+        return new RunResultWriter(testRunRepository, testRunTaskRepository, testRunCheckRepository, resultLogStore,
+                runStatsCollector, transactionTemplate, durableQueue, batchSize, maxDelayMs, capacity);
+    }
+
+    private List<TestRunEntity> lockedRows(Collection<Long> ids) {
+        Map<Long, TestRunEntity> rows = ids.stream()
+                .filter(storedRuns::containsKey)
+                .collect(Collectors.toMap(Function.identity(), storedRuns::get));
+        return List.copyOf(rows.values());
+    }
+
+    private void store(TestRunEntity run) {
+        storedRuns.put(run.getId(), run);
+    }
+
+    private static TestRunEntity run(Long id, String status, String executedBy) {
+        return TestRunEntity.builder()
+                .id(id)
+                .status(status)
+                .executedBy(executedBy)
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.spectestengine.engine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.spectestengine.model.RateLimit;
+import com.example.spectestengine.model.RunPriority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+class TestRunQueueTest {
+    private static final String URL = "https://api.example.com/a";
+    private static final String OTHER_URL = "https://other.example.com/b";
+
+    private TestRunQueue queue;
+
+    @AfterEach
+    void shutdown() {
+        if (queue != null) {
+            queue.shutdownAndDrain(Duration.ZERO);
+        }
+    }
+
+    /*
+    The lane is held by a running task until every class is backlogged. With weights 8:2:1, every round
+    of 11 tasks has 8 interactive, 2 bulk and 1 scheduled task, and each class keeps its FIFO order.
+     */
+    @Test
+    void prioritiesShareTheLaneByWeight() throws Exception {
+        queue = newQueue(4, 0, 1);
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        queue.submit(URL, null, RunPriority.INTERACTIVE, RateLimit.DEFAULT, throttledNanos -> {
+            blockerStarted.countDown();
+            await(blocked);
+        });
+        assertThat(blockerStarted.await(1, TimeUnit.SECONDS)).isTrue();
+
+        int tasksPerPriority = 30;
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(tasksPerPriority * RunPriority.values().length);
+        for (int i = 0; i < tasksPerPriority; i++) {
+            for (RunPriority priority : RunPriority.values()) {
+                String name = priority.name() + "-" + i;
+                queue.submit(URL, null, priority, RateLimit.DEFAULT, throttledNanos -> {
+                    executed.add(name);
+                    finished.countDown();
+                });
+            }
+        }
+        blocked.countDown();
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+
+        for (int round = 0; round < 3; round++) {
+            Map<RunPriority, Integer> counts = new EnumMap<>(RunPriority.class);
+            for (String name : executed.subList(round * 11, (round + 1) * 11)) {
+                counts.merge(RunPriority.valueOf(name.substring(0, name.indexOf('-'))), 1, Integer::sum);
+            }
+            assertThat(counts).as("round %d of %s", round, executed)
+                    .containsEntry(RunPriority.INTERACTIVE, 8)
+                    .containsEntry(RunPriority.BULK, 2)
+                    .containsEntry(RunPriority.SCHEDULED, 1);
+        }
+        for (RunPriority priority : RunPriority.values()) {
+            List<String> ofPriority = executed.stream().filter(name -> name.startsWith(priority.name() + "-")).toList();
+            List<String> inOrder = new ArrayList<>();
+            for (int i = 0; i < tasksPerPriority; i++) {
+                inOrder.add(priority.name() + "-" + i);
+            }
+            assertThat(ofPriority).isEqualTo(inOrder);
+        }
+    }
+
+    /*
+    Throttled tasks of one key keep their order and are spaced by the rate, while a task of another key
+    runs on the only worker in the meantime.
+     */
+    @Test
+    void throttledTasksKeepOrderWithoutHoldingAWorker() throws Exception {
+        queue = newQueue(1, 0, 1);
+        RateLimit rateLimit = new RateLimit(20.0, 1);
+        int throttledTasks = 5;
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        List<Long> startedAt = Collections.synchronizedList(new ArrayList<>());
+        List<Long> waitedNanos = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch finished = new CountDownLatch(throttledTasks);
+        for (int i = 0; i < throttledTasks; i++) {
+            int index = i;
+            queue.submit(URL, null, RunPriority.BULK, rateLimit, throttledNanos -> {
+                executed.add(index);
+                startedAt.add(System.nanoTime());
+                waitedNanos.add(throttledNanos);
+                finished.countDown();
+            });
+        }
+
+        CountDownLatch otherKeyRan = new CountDownLatch(1);
+        queue.submit(OTHER_URL, null, RunPriority.BULK, RateLimit.DEFAULT, throttledNanos -> otherKeyRan.countDown());
+        assertThat(otherKeyRan.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(finished.getCount()).isPositive();
+
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executed).containsExactly(0, 1, 2, 3, 4);
+        assertThat(waitedNanos.getFirst()).isZero();
+        assertThat(waitedNanos.subList(1, throttledTasks)).allSatisfy(waited -> assertThat(waited).isPositive());
+        long minimumSpacing = TimeUnit.MILLISECONDS.toNanos(40);
+        assertThat(startedAt.getLast() - startedAt.getFirst()).isGreaterThanOrEqualTo(minimumSpacing * (throttledTasks - 1));
+    }
+
+    @Test
+    void throttledTaskLeftAtShutdownIsReportedAsAbandoned() throws Exception {
+        queue = newQueue(1, 0, 1);
+        RateLimit rateLimit = new RateLimit(0.5, 1);
+        CountDownLatch firstRan = new CountDownLatch(1);
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        queue.submit(URL, null, RunPriority.BULK, rateLimit, throttledNanos -> {
+            executed.add(0);
+            firstRan.countDown();
+        });
+        queue.submit(URL, null, RunPriority.BULK, rateLimit, throttledNanos -> executed.add(1));
+        assertThat(firstRan.await(1, TimeUnit.SECONDS)).isTrue();
+        waitUntil(() -> queue.getStats().throttledTasks() == 1);
+
+        int abandonedTasks = queue.shutdownAndDrain(Duration.ofMillis(50));
+        queue = null;
+
+        assertThat(abandonedTasks).isEqualTo(1);
+        assertThat(executed).containsExactly(0);
+    }
+
+    @Test
+    void unlimitedKeysAreNotThrottled() throws Exception {
+        queue = newQueue(2, 0, 1);
+        int tasks = 50;
+        CountDownLatch finished = new CountDownLatch(tasks);
+        List<Long> waitedNanos = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < tasks; i++) {
+            queue.submit(URL, null, RunPriority.INTERACTIVE, RateLimit.DEFAULT, throttledNanos -> {
+                waitedNanos.add(throttledNanos);
+                finished.countDown();
+            });
+        }
+
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(waitedNanos).containsOnly(0L);
+        assertThat(queue.getStats().throttledTasks()).isZero();
+    }
+
+    private static TestRunQueue newQueue(int workers, double requestsPerSecond, int burst) {
+        return new TestRunQueue(QueueKeyStrategy.URL, 1, List.of(), workers,
+                List.of("INTERACTIVE=8", "BULK=2", "SCHEDULED=1"),
+                List.of("INTERACTIVE=1000", "BULK=1000", "SCHEDULED=1000"),
+                TestRunQueue.RateLimitScope.KEY, requestsPerSecond, burst);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not reached in time").isLessThan(deadline);
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
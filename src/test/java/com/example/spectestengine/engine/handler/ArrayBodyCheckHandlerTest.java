@@ -0,0 +1,224 @@
+package com.example.spectestengine.engine.handler;
+
+import static com.example.spectestengine.utils.Constants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+class ArrayBodyCheckHandlerTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+    private static final String[] FIELD_NAMES = {"a", "b", "c"};
+    private static final int RANDOM_CASES = 2000;
+
+    private final ArrayBodyCheckHandler handler = new ArrayBodyCheckHandler();
+
+    @Test
+    void containsAllLogsMissingExpectedElements() {
+        ObjectNode resultLog = objectMapper.createObjectNode();
+
+        String status = check("{\"expectedElements\":[{\"id\":1},{\"id\":2},{\"id\":3}]}",
+                "[{\"id\":3},{\"id\":4},{\"id\":1}]", resultLog);
+
+        assertThat(status).isEqualTo(FAIL);
+        assertThat(resultLog.get(MISSING_ELEMENT_INDEXES)).isEqualTo(json("[1]"));
+        assertThat(resultLog.get(RECEIVED_ELEMENT_COUNT).asInt()).isEqualTo(3);
+    }
+
+    @Test
+    void unorderedRequiresSameMultiplicity() {
+        String spec = "{\"arrayMatchMode\":\"unordered\",\"expectedElements\":[{\"id\":1},{\"id\":1},{\"id\":2}]}";
+
+        assertThat(check(spec, "[{\"id\":2},{\"id\":1},{\"id\":1}]", objectMapper.createObjectNode())).isEqualTo(PASS);
+
+        ObjectNode resultLog = objectMapper.createObjectNode();
+        assertThat(check(spec, "[{\"id\":2},{\"id\":1},{\"id\":2}]", resultLog)).isEqualTo(FAIL);
+        assertThat(resultLog.get(UNMATCHED_ELEMENT_INDEX).asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void excludedFieldsApplyToEveryElement() {
+        String spec = "{\"arrayMatchMode\":\"UNORDERED\",\"excludedBodyFields\":[\"ts\"],"
+                + "\"expectedElements\":[{\"id\":1,\"ts\":0},{\"id\":2}]}";
+
+        assertThat(check(spec, "[{\"id\":2,\"ts\":5},{\"ts\":6,\"id\":1}]", objectMapper.createObjectNode())).isEqualTo(PASS);
+    }
+
+    /*
+    The first received element matches both expected elements and is taken by the first shape; only the
+    augmenting path moves it to the second one, so the other received element can take the first.
+     */
+    @Test
+    void elementTakenByAnotherShapeIsReassigned() {
+        String spec = "{\"arrayMatchMode\":\"UNORDERED\",\"excludeAllOtherBodyFields\":true,"
+                + "\"expectedElements\":[{\"a\":1},{\"a\":1,\"b\":2}]}";
+
+        assertThat(check(spec, "[{\"a\":1,\"b\":2},{\"a\":1,\"b\":3}]", objectMapper.createObjectNode())).isEqualTo(PASS);
+
+        ObjectNode resultLog = objectMapper.createObjectNode();
+        assertThat(check(spec, "[{\"a\":1,\"b\":3},{\"a\":1,\"b\":3}]", resultLog)).isEqualTo(FAIL);
+        assertThat(resultLog.get(UNMATCHED_ELEMENT_INDEX).asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void expectedElementCountIsChecked() {
+        assertThat(check("{\"expectedElementCount\":2}", "[{},{}]", objectMapper.createObjectNode())).isEqualTo(PASS);
+        assertThat(check("{\"expectedElementCount\":2}", "[{}]", objectMapper.createObjectNode())).isEqualTo(FAIL);
+    }
+
+    @Test
+    void nonArrayResponseFails() {
+        ObjectNode resultLog = objectMapper.createObjectNode();
+
+        assertThat(check("{\"expectedElementCount\":1}", "{}", resultLog)).isEqualTo(FAIL);
+        assertThat(resultLog.has(ARRAY_CHECK_ERROR)).isTrue();
+    }
+
+    /*
+    Both modes against a brute-force reference that trims each received element to the expected element
+    it is compared with, for small random arrays where several shapes compete for the same elements.
+     */
+    @Test
+    void matchesBruteForceOnRandomArrays() {
+        for (int seed = 0; seed < RANDOM_CASES; seed++) {
+            Random random = new Random(seed);
+            boolean includeOnlyExpected = random.nextBoolean();
+            Set<String> excludedFields = random.nextInt(3) == 0 ? Set.of(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)]) : Set.of();
+            ArrayNode received = nodeFactory.arrayNode();
+            int receivedCount = random.nextInt(5);
+            for (int i = 0; i < receivedCount; i++) {
+                received.add(randomObject(random, 2));
+            }
+            ArrayNode expectedElements = nodeFactory.arrayNode();
+            int expectedCount = random.nextInt(5);
+            for (int i = 0; i < expectedCount; i++) {
+                expectedElements.add(!received.isEmpty() && random.nextInt(4) > 0
+                        ? dropRandomFields(random, (ObjectNode) received.get(random.nextInt(received.size())))
+                        : randomObject(random, 2));
+            }
+
+            List<ObjectNode> expected = new ArrayList<>();
+            expectedElements.forEach(element -> {
+                ObjectNode stripped = element.deepCopy();
+                stripped.remove(excludedFields);
+                expected.add(stripped);
+            });
+            boolean[][] matches = new boolean[received.size()][expected.size()];
+            for (int r = 0; r < received.size(); r++) {
+                for (int e = 0; e < expected.size(); e++) {
+                    matches[r][e] = referenceMatches(expected.get(e), received.get(r), excludedFields, includeOnlyExpected);
+                }
+            }
+
+            for (String mode : List.of("CONTAINS_ALL", "UNORDERED")) {
+                ObjectNode spec = objectMapper.createObjectNode();
+                spec.put(ARRAY_MATCH_MODE, mode);
+                spec.put(EXCLUDE_ALL_OTHER_BODY_FIELDS, includeOnlyExpected);
+                ArrayNode excluded = spec.putArray(EXCLUDED_BODY_FIELDS);
+                excludedFields.forEach(excluded::add);
+                spec.set(EXPECTED_ELEMENTS, expectedElements);
+
+                boolean referenceResult = "CONTAINS_ALL".equals(mode)
+                        ? containsAll(matches, expected.size())
+                        : received.size() == expected.size() && hasPerfectMatching(matches, 0, new boolean[expected.size()]);
+                String status = handler.compile(spec).check(received, null, objectMapper.createObjectNode(), PASS);
+                assertThat(status).as("seed %d: spec %s, body %s", seed, spec, received).isEqualTo(referenceResult ? PASS : FAIL);
+            }
+        }
+    }
+
+    private static boolean referenceMatches(ObjectNode expected, JsonNode received, Set<String> excludedFields,
+                                            boolean includeOnlyExpected) {
+        ObjectNode compared = received.deepCopy();
+        compared.remove(excludedFields);
+        return expected.equals(includeOnlyExpected ? trim(expected, compared) : compared);
+    }
+
+    private static ObjectNode trim(JsonNode expected, JsonNode received) {
+        ObjectNode trimmed = nodeFactory.objectNode();
+        expected.fieldNames().forEachRemaining(fieldName -> {
+            if (received.has(fieldName)) {
+                JsonNode expectedChild = expected.get(fieldName);
+                JsonNode receivedChild = received.get(fieldName);
+                trimmed.set(fieldName, expectedChild.isObject() && receivedChild.isObject()
+                        ? trim(expectedChild, receivedChild)
+                        : receivedChild);
+            }
+        });
+        return trimmed;
+    }
+
+    private static boolean containsAll(boolean[][] matches, int expectedCount) {
+        for (int e = 0; e < expectedCount; e++) {
+            boolean found = false;
+            for (boolean[] receivedMatches : matches) {
+                found |= receivedMatches[e];
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasPerfectMatching(boolean[][] matches, int receivedIndex, boolean[] used) {
+        if (receivedIndex == matches.length) {
+            return true;
+        }
+        for (int e = 0; e < used.length; e++) {
+            if (!used[e] && matches[receivedIndex][e]) {
+                used[e] = true;
+                boolean found = hasPerfectMatching(matches, receivedIndex + 1, used);
+                used[e] = false;
+                if (found) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static ObjectNode dropRandomFields(Random random, ObjectNode source) {
+        ObjectNode trimmed = nodeFactory.objectNode();
+        for (Map.Entry<String, JsonNode> field : source.properties()) {
+            if (random.nextInt(3) > 0) {
+                trimmed.set(field.getKey(), field.getValue());
+            }
+        }
+        return trimmed;
+    }
+
+    private static ObjectNode randomObject(Random random, int depth) {
+        ObjectNode object = nodeFactory.objectNode();
+        int fields = random.nextInt(FIELD_NAMES.length + 1);
+        for (int i = 0; i < fields; i++) {
+            object.set(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)], depth > 1 && random.nextInt(4) == 0
+                    ? randomObject(random, depth - 1)
+                    : nodeFactory.numberNode(random.nextInt(2)));
+        }
+        return object;
+    }
+
+    private String check(String spec, String body, ObjectNode resultLog) {
+        return handler.compile(json(spec)).check(json(body), null, resultLog, PASS);
+    }
+
+    private static JsonNode json(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.spectestengine.engine.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+class BodyProjectionTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+    private static final String[] FIELD_NAMES = {"a", "b", "c", "d"};
+    private static final int RANDOM_CASES = 1000;
+
+    @Test
+    void excludedFieldsAreNotCompared() {
+        BodyProjection projection = new BodyProjection(Set.of("ts"), null);
+        ObjectNode expected = object("{\"id\":1,\"name\":\"x\"}");
+        JsonNode received = object("{\"ts\":123,\"name\":\"x\",\"id\":1}");
+
+        assertThat(projection.matches(expected, received)).isTrue();
+        assertThat(projection.hash(received)).isEqualTo(expected.hashCode());
+    }
+
+    @Test
+    void extraFieldFailsWithoutShape() {
+        BodyProjection projection = new BodyProjection(Set.of(), null);
+
+        assertThat(projection.matches(object("{\"id\":1}"), object("{\"id\":1,\"extra\":2}"))).isFalse();
+        assertThat(projection.matches(object("{\"id\":1,\"extra\":2}"), object("{\"id\":1}"))).isFalse();
+    }
+
+    @Test
+    void shapeTrimsNestedObjectsButNotArrays() {
+        ObjectNode expected = object("{\"id\":1,\"owner\":{\"name\":\"x\"},\"tags\":[{\"k\":1}]}");
+        BodyProjection projection = new BodyProjection(Set.of(), expected);
+
+        JsonNode received = object("{\"id\":1,\"owner\":{\"name\":\"x\",\"age\":3},\"tags\":[{\"k\":1}],\"extra\":true}");
+        assertThat(projection.matches(expected, received)).isTrue();
+        assertThat(projection.hash(received)).isEqualTo(expected.hashCode());
+
+        JsonNode receivedWithLongerTag = object("{\"id\":1,\"owner\":{\"name\":\"x\"},\"tags\":[{\"k\":1,\"v\":2}]}");
+        assertThat(projection.matches(expected, receivedWithLongerTag)).isFalse();
+    }
+
+    @Test
+    void missingExpectedFieldFailsWithShape() {
+        ObjectNode expected = object("{\"id\":1,\"name\":\"x\"}");
+        BodyProjection projection = new BodyProjection(Set.of(), expected);
+
+        assertThat(projection.matches(expected, object("{\"id\":1}"))).isFalse();
+    }
+
+    @Test
+    void nonObjectNeverMatches() {
+        BodyProjection projection = new BodyProjection(Set.of(), null);
+
+        assertThat(projection.matches(object("{}"), nodeFactory.numberNode(1))).isFalse();
+        assertThat(projection.hash(nodeFactory.textNode("x"))).isEqualTo(nodeFactory.textNode("x").hashCode());
+    }
+
+    /*
+    The projection of a random object, built as a tree, must match it and hash like it.
+     */
+    @Test
+    void hashOfProjectionEqualsHashOfEqualExpectedElement() {
+        for (int seed = 0; seed < RANDOM_CASES; seed++) {
+            Random random = new Random(seed);
+            ObjectNode received = randomObject(random, 3);
+            Set<String> excludedFields = random.nextBoolean() ? Set.of(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)]) : Set.of();
+            ObjectNode expected = received.deepCopy();
+            expected.remove(excludedFields);
+            JsonNode shape = null;
+            if (random.nextBoolean()) {
+                expected = dropRandomFields(random, expected);
+                shape = expected;
+            }
+            BodyProjection projection = new BodyProjection(excludedFields, shape);
+
+            String description = "seed %d: expected %s, received %s".formatted(seed, expected, received);
+            assertThat(projection.matches(expected, received)).as(description).isTrue();
+            assertThat(projection.hash(received)).as(description).isEqualTo(expected.hashCode());
+        }
+    }
+
+    private static ObjectNode dropRandomFields(Random random, ObjectNode source) {
+        ObjectNode trimmed = nodeFactory.objectNode();
+        for (Map.Entry<String, JsonNode> field : source.properties()) {
+            if (random.nextInt(3) == 0) {
+                continue;
+            }
+            trimmed.set(field.getKey(), field.getValue().isObject()
+                    ? dropRandomFields(random, (ObjectNode) field.getValue())
+                    : field.getValue());
+        }
+        return trimmed;
+    }
+
+    private static ObjectNode randomObject(Random random, int depth) {
+        ObjectNode object = nodeFactory.objectNode();
+        int fields = random.nextInt(FIELD_NAMES.length + 1);
+        for (int i = 0; i < fields; i++) {
+            object.set(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)], randomValue(random, depth - 1));
+        }
+        return object;
+    }
+
+    private static JsonNode randomValue(Random random, int depth) {
+        return switch (random.nextInt(depth > 0 ? 6 : 4)) {
+            case 0 -> nodeFactory.numberNode(random.nextInt(3));
+            case 1 -> nodeFactory.textNode(random.nextBoolean() ? "x" : "y");
+            case 2 -> nodeFactory.booleanNode(random.nextBoolean());
+            case 3 -> nodeFactory.nullNode();
+            case 4 -> randomObject(random, depth);
+            default -> {
+                ArrayNode array = nodeFactory.arrayNode();
+                array.add(randomValue(random, depth - 1));
+                yield array;
+            }
+        };
+    }
+
+    private static ObjectNode object(String json) {
+        try {
+            return (ObjectNode) objectMapper.readTree(json);
+        } catch (Exception exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.spectestengine.engine.handler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class JsonDiffTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+    private static final String[] FIELD_NAMES = {"a", "b", "c/d", "e~f"};
+    private static final int RANDOM_CASES = 2000;
+
+    @Test
+    void equalDocumentsGiveEmptyPatch() {
+        assertThat(JsonDiff.diff(json("{\"a\":[1,{\"b\":2}]}"), json("{\"a\":[1,{\"b\":2}]}"))).isEmpty();
+    }
+
+    @Test
+    void onlyDifferingLeavesArePatched() {
+        ArrayNode patch = JsonDiff.diff(json("{\"a\":1,\"b\":{\"c\":2,\"d\":3},\"gone\":true}"),
+                json("{\"a\":1,\"b\":{\"c\":2,\"d\":4},\"new\":null}"));
+
+        assertThat(patch).isEqualTo(json("""
+                [{"op":"replace","path":"/b/d","value":4},
+                 {"op":"remove","path":"/gone"},
+                 {"op":"add","path":"/new","value":null}]"""));
+    }
+
+    @Test
+    void fieldNamesAreEscaped() {
+        assertThat(JsonDiff.diff(json("{\"a/b\":{\"c~d\":1}}"), json("{\"a/b\":{\"c~d\":2}}")))
+                .isEqualTo(json("[{\"op\":\"replace\",\"path\":\"/a~1b/c~0d\",\"value\":2}]"));
+    }
+
+    @Test
+    void insertedArrayElementIsOneOperation() {
+        assertThat(JsonDiff.diff(json("[1,2,3,4]"), json("[1,2,9,3,4]")))
+                .isEqualTo(json("[{\"op\":\"add\",\"path\":\"/2\",\"value\":9}]"));
+        assertThat(JsonDiff.diff(json("[1,2,9,3,4]"), json("[1,2,3,4]")))
+                .isEqualTo(json("[{\"op\":\"remove\",\"path\":\"/2\"}]"));
+    }
+
+    @Test
+    void differentTypesAreReplaced() {
+        assertThat(JsonDiff.diff(json("{\"a\":[1]}"), json("{\"a\":{\"b\":1}}")))
+                .isEqualTo(json("[{\"op\":\"replace\",\"path\":\"/a\",\"value\":{\"b\":1}}]"));
+        assertThat(JsonDiff.diff(json("[1]"), json("{}")))
+                .isEqualTo(json("[{\"op\":\"replace\",\"path\":\"\",\"value\":{}}]"));
+    }
+
+    /*
+    Applying the patch to the source, in order and as RFC 6902 defines it, must give the target.
+     */
+    @Test
+    void patchTurnsSourceIntoTargetForRandomDocuments() {
+        for (int seed = 0; seed < RANDOM_CASES; seed++) {
+            Random random = new Random(seed);
+            JsonNode source = randomValue(random, 3);
+            JsonNode target = random.nextBoolean() ? mutate(random, source.deepCopy()) : randomValue(random, 3);
+
+            ArrayNode patch = JsonDiff.diff(source, target);
+
+            assertThat(apply(patch, source.deepCopy())).as("seed %d: %s -> %s with %s", seed, source, target, patch)
+                    .isEqualTo(target);
+        }
+    }
+
+    private static JsonNode apply(ArrayNode patch, JsonNode document) {
+        for (JsonNode operation : patch) {
+            String path = operation.get("path").asText();
+            if (path.isEmpty()) {
+                document = operation.get("value");
+                continue;
+            }
+
+            int separator = path.lastIndexOf('/');
+            JsonNode parent = document.at(path.substring(0, separator));
+            String token = path.substring(separator + 1).replace("~1", "/").replace("~0", "~");
+            switch (operation.get("op").asText()) {
+                case "add" -> {
+                    if (parent.isArray()) {
+                        ((ArrayNode) parent).insert(Integer.parseInt(token), operation.get("value"));
+                    } else {
+                        ((ObjectNode) parent).set(token, operation.get("value"));
+                    }
+                }
+                case "remove" -> {
+                    if (parent.isArray()) {
+                        ((ArrayNode) parent).remove(Integer.parseInt(token));
+                    } else {
+                        ((ObjectNode) parent).remove(token);
+                    }
+                }
+                case "replace" -> {
+                    if (parent.isArray()) {
+                        ((ArrayNode) parent).set(Integer.parseInt(token), operation.get("value"));
+                    } else {
+                        ((ObjectNode) parent).set(token, operation.get("value"));
+                    }
+                }
+                default -> throw new IllegalStateException("Unexpected operation: " + operation);
+            }
+        }
+        return document;
+    }
+
+    /*
+    Small edits of nested values, so patches are short and reach deep paths.
+     */
+    private static JsonNode mutate(Random random, JsonNode node) {
+        if (node.isObject()) {
+            ObjectNode object = (ObjectNode) node;
+            String fieldName = FIELD_NAMES[random.nextInt(FIELD_NAMES.length)];
+            if (object.has(fieldName) && random.nextBoolean()) {
+                object.set(fieldName, mutate(random, object.get(fieldName)));
+            } else if (object.has(fieldName)) {
+                object.remove(fieldName);
+            } else {
+                object.set(fieldName, randomValue(random, 1));
+            }
+            return object;
+        }
+
+        if (node.isArray()) {
+            ArrayNode array = (ArrayNode) node;
+            int choice = random.nextInt(3);
+            if (choice == 0 || array.isEmpty()) {
+                array.insert(random.nextInt(array.size() + 1), randomValue(random, 1));
+            } else if (choice == 1) {
+                array.remove(random.nextInt(array.size()));
+            } else {
+                int index = random.nextInt(array.size());
+                array.set(index, mutate(random, array.get(index)));
+            }
+            return array;
+        }
+        return randomValue(random, 1);
+    }
+
+    private static JsonNode randomValue(Random random, int depth) {
+        return switch (random.nextInt(depth > 0 ? 6 : 4)) {
+            case 0 -> nodeFactory.numberNode(random.nextInt(3));
+            case 1 -> nodeFactory.textNode(random.nextBoolean() ? "x" : "y");
+            case 2 -> nodeFactory.booleanNode(random.nextBoolean());
+            case 3 -> nodeFactory.nullNode();
+            case 4 -> {
+                ObjectNode object = nodeFactory.objectNode();
+                int fields = random.nextInt(FIELD_NAMES.length + 1);
+                for (int i = 0; i < fields; i++) {
+                    object.set(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)], randomValue(random, depth - 1));
+                }
+                yield object;
+            }
+            default -> {
+                ArrayNode array = nodeFactory.arrayNode();
+                int elements = random.nextInt(4);
+                for (int i = 0; i < elements; i++) {
+                    array.add(randomValue(random, depth - 1));
+                }
+                yield array;
+            }
+        };
+    }
+
+    private static JsonNode json(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.spectestengine.engine.handler;
+
+import static com.example.spectestengine.utils.Constants.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.spectestengine.engine.transport.TransportResponse;
+import com.example.spectestengine.engine.transport.TransportTimings;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/*
+The streaming path must give the same result as the tree path. Bodies are padded with trailing whitespace
+past the streaming threshold, so the same document goes through both paths of BodyCheckHandler.
+ */
+class StreamingBodyMatcherTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonNodeFactory nodeFactory = JsonNodeFactory.instance;
+    private static final String[] FIELD_NAMES = {"a", "b", "c", "d", "e/f"};
+    private static final int RANDOM_CASES = 500;
+
+    private final BodyCheckHandler handler = new BodyCheckHandler();
+
+    @Test
+    void objectWithExcludedFieldMatches() throws Exception {
+        StreamingBodyMatcher.MatchResult result = StreamingBodyMatcher.match(bytes("{\"id\":7,\"name\":\"x\",\"ts\":1}"),
+                object("{\"id\":7,\"name\":\"x\"}"), Set.of("ts"), false);
+
+        assertThat(result.matched()).isTrue();
+        assertThat(result.mismatchPath()).isNull();
+        assertThat(result.matchedElementIndex()).isEqualTo(-1);
+    }
+
+    @Test
+    void mismatchPathPointsToNestedValue() throws Exception {
+        StreamingBodyMatcher.MatchResult result = StreamingBodyMatcher.match(
+                bytes("{\"a\":{\"b/c\":[1,2,{\"d\":3}]}}"), object("{\"a\":{\"b/c\":[1,2,{\"d\":4}]}}"), Set.of(), false);
+
+        assertThat(result.matched()).isFalse();
+        assertThat(result.mismatchPath()).isEqualTo("/a/b~1c/2/d");
+    }
+
+    @Test
+    void extraFieldFailsUnlessOnlyExpectedFieldsAreCompared() throws Exception {
+        byte[] body = bytes("{\"a\":1,\"nested\":{\"b\":2,\"extra\":3},\"extra\":4}");
+        ObjectNode expected = object("{\"a\":1,\"nested\":{\"b\":2}}");
+
+        assertThat(StreamingBodyMatcher.match(body, expected, Set.of(), false).matched()).isFalse();
+        assertThat(StreamingBodyMatcher.match(body, expected, Set.of(), true).matched()).isTrue();
+    }
+
+    @Test
+    void duplicateFieldKeepsLastValue() throws Exception {
+        ObjectNode expected = object("{\"a\":2}");
+
+        assertThat(StreamingBodyMatcher.match(bytes("{\"a\":1,\"a\":2}"), expected, Set.of(), false).matched()).isTrue();
+        assertThat(StreamingBodyMatcher.match(bytes("{\"a\":2,\"a\":1}"), expected, Set.of(), false).matched()).isFalse();
+    }
+
+    @Test
+    void arrayReportsFirstMatchingElement() throws Exception {
+        StreamingBodyMatcher.MatchResult result = StreamingBodyMatcher.match(
+                bytes("[{\"id\":1},{\"id\":2},{\"id\":2}]"), object("{\"id\":2}"), Set.of(), false);
+
+        assertThat(result.matched()).isTrue();
+        assertThat(result.matchedElementIndex()).isEqualTo(1);
+        assertThat(result.mismatchPath()).isNull();
+    }
+
+    @Test
+    void invalidStreamedBodyFailsTheCheck() {
+        TestCheck check = handler.compile(object("{\"expectedBody\":{\"a\":1}}"));
+        ObjectNode resultLog = objectMapper.createObjectNode();
+
+        String status = check.check(MissingNode.getInstance(), response(padded("{\"a\":1,")), resultLog, PASS);
+
+        assertThat(status).isEqualTo(FAIL);
+        assertThat(resultLog.path(BODY_CHECK_RESULT).asText()).isEqualTo(FAIL);
+        assertThat(resultLog.path(BODY_CHECK_ERROR).asText()).startsWith(INVALID_JSON_BODY);
+    }
+
+    @Test
+    void streamedBodyIsCapturedAsText() {
+        TestCheck check = handler.compile(object("{\"expectedBody\":{\"a\":1},\"captureBody\":true}"));
+        ObjectNode resultLog = objectMapper.createObjectNode();
+        String body = padded("{\"a\":1}");
+
+        String status = check.check(MissingNode.getInstance(), response(body), resultLog, PASS);
+
+        assertThat(status).isEqualTo(PASS);
+        assertThat(resultLog.path(RECEIVED_BODY).asText()).isEqualTo(body);
+        assertThat(resultLog.path(RECEIVED_BODY_BYTES).asInt()).isEqualTo(body.length());
+    }
+
+    @Test
+    void streamingAndTreePathsAgreeOnRandomBodies() {
+        for (int seed = 0; seed < RANDOM_CASES; seed++) {
+            Random random = new Random(seed);
+            JsonNode received = random.nextInt(4) == 0 ? randomArrayOfObjects(random) : randomObject(random, 3);
+            JsonNode source = received;
+            if (received.isArray()) {
+                source = received.isEmpty() ? randomObject(random, 2) : received.get(random.nextInt(received.size()));
+            }
+            ObjectNode expected = mutate(random, source);
+            ObjectNode spec = objectMapper.createObjectNode();
+            spec.set(EXPECTED_BODY, expected);
+            ArrayNode excludedFields = spec.putArray(EXCLUDED_BODY_FIELDS);
+            for (String fieldName : FIELD_NAMES) {
+                if (random.nextInt(5) == 0) {
+                    excludedFields.add(fieldName);
+                }
+            }
+            spec.put(EXCLUDE_ALL_OTHER_BODY_FIELDS, random.nextBoolean());
+            TestCheck check = handler.compile(spec);
+
+            ObjectNode treeLog = objectMapper.createObjectNode();
+            String treeStatus = check.check(received, response(received.toString()), treeLog, PASS);
+            ObjectNode streamingLog = objectMapper.createObjectNode();
+            String streamingStatus = check.check(MissingNode.getInstance(), response(padded(received.toString())), streamingLog, PASS);
+
+            String description = "seed %d: spec %s, body %s".formatted(seed, spec, received);
+            assertThat(streamingStatus).as(description).isEqualTo(treeStatus);
+            assertThat(streamingLog.path(MATCHED_ELEMENT_INDEX)).as(description).isEqualTo(treeLog.path(MATCHED_ELEMENT_INDEX));
+            assertThat(streamingLog.path(BODY_CHECK_RESULT)).as(description).isEqualTo(treeLog.path(BODY_CHECK_RESULT));
+            if (!received.isArray()) {
+                assertThat(streamingLog.has(BODY_MISMATCH_PATH)).as(description).isEqualTo(FAIL.equals(treeStatus));
+            }
+        }
+    }
+
+    private static ObjectNode randomObject(Random random, int depth) {
+        ObjectNode object = nodeFactory.objectNode();
+        int fields = random.nextInt(FIELD_NAMES.length + 1);
+        for (int i = 0; i < fields; i++) {
+            object.set(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)], randomValue(random, depth - 1));
+        }
+        return object;
+    }
+
+    private static ArrayNode randomArrayOfObjects(Random random) {
+        ArrayNode array = nodeFactory.arrayNode();
+        int elements = random.nextInt(4);
+        for (int i = 0; i < elements; i++) {
+            array.add(randomObject(random, 2));
+        }
+        return array;
+    }
+
+    private static JsonNode randomValue(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 7 : 5);
+        return switch (kind) {
+            case 0 -> nodeFactory.numberNode(random.nextInt(3));
+            case 1 -> nodeFactory.textNode(random.nextBoolean() ? "x" : "y");
+            case 2 -> nodeFactory.booleanNode(random.nextBoolean());
+            case 3 -> nodeFactory.nullNode();
+            case 4 -> nodeFactory.numberNode(1.5);
+            case 5 -> randomObject(random, depth);
+            default -> {
+                ArrayNode array = nodeFactory.arrayNode();
+                int elements = random.nextInt(3);
+                for (int i = 0; i < elements; i++) {
+                    array.add(randomValue(random, depth - 1));
+                }
+                yield array;
+            }
+        };
+    }
+
+    /*
+    Mostly small changes of the received object, so matches and near misses are both common.
+     */
+    private static ObjectNode mutate(Random random, JsonNode source) {
+        ObjectNode expected = source.deepCopy();
+        List<String> fieldNames = new ArrayList<>();
+        expected.fieldNames().forEachRemaining(fieldNames::add);
+        switch (random.nextInt(6)) {
+            case 0 -> {
+                if (!fieldNames.isEmpty()) {
+                    expected.remove(fieldNames.get(random.nextInt(fieldNames.size())));
+                }
+            }
+            case 1 -> expected.set(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)], randomValue(random, 2));
+            case 2 -> {
+                for (Map.Entry<String, JsonNode> field : expected.properties()) {
+                    if (field.getValue().isObject() && random.nextBoolean()) {
+                        ((ObjectNode) field.getValue()).set(FIELD_NAMES[random.nextInt(FIELD_NAMES.length)], randomValue(random, 0));
+                    }
+                }
+            }
+            case 3 -> {
+                return randomObject(random, 3);
+            }
+            default -> {
+                // unchanged
+            }
+        }
+        return expected;
+    }
+
+    private static String padded(String body) {
+        return body + " ".repeat(STREAMING_BODY_THRESHOLD_BYTES + 1);
+    }
+
+    private static TransportResponse response(String body) {
+        return new TransportResponse(200, "application/json", Map.of(), bytes(body), new TransportTimings(0, null, null));
+    }
+
+    private static byte[] bytes(String body) {
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ObjectNode object(String json) {
+        try {
+            return (ObjectNode) objectMapper.readTree(json);
+        } catch (Exception exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+}
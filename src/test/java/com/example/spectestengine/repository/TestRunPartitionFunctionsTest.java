@@ -0,0 +1,265 @@
+package com.example.spectestengine.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+The partition maintenance functions of the migrations against a real Postgres. Every test works on months
+of its own, so the tests share one migrated database.
+ */
+@Testcontainers
+class TestRunPartitionFunctionsTest {
+    private static final String[] PARENT_TABLES = {"test_runs", "test_run_checks", "test_run_log_blobs"};
+    private static final AtomicLong ids = new AtomicLong();
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static long specId;
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .load()
+                .migrate();
+        try (Connection connection = connect()) {
+            specId = queryLong(connection, "INSERT INTO test_specs (name, format) VALUES ('spec', 'JSON') RETURNING id");
+        }
+    }
+
+    /*
+    Archiving and deleting take every expired default row, so each test starts with empty default partitions.
+     */
+    @BeforeEach
+    void clearDefaultPartitions() throws SQLException {
+        try (Connection connection = connect();
+             PreparedStatement statement = connection.prepareStatement(
+                     "TRUNCATE test_runs_default, test_run_checks_default, test_run_log_blobs_default")) {
+            statement.execute();
+        }
+    }
+
+    @Test
+    void migrationsCreateMonthPartitionsOfAllTables() throws SQLException {
+        String suffix = monthSuffix(LocalDate.now().withDayOfMonth(1));
+        try (Connection connection = connect()) {
+            for (String parentTable : PARENT_TABLES) {
+                assertThat(isAttached(connection, parentTable, parentTable + suffix)).as(parentTable).isTrue();
+                assertThat(isAttached(connection, parentTable, parentTable + "_default")).as(parentTable).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void createMonthPartitionMovesRowsOutOfTheDefaultPartition() throws SQLException {
+        LocalDateTime queuedAt = LocalDateTime.of(2099, 1, 15, 12, 0);
+        try (Connection connection = connect()) {
+            long runId = insertRun(connection, queuedAt);
+            assertThat(count(connection, "test_runs_default", runId)).isEqualTo(1);
+            assertThat(count(connection, "test_run_checks_default", runId)).isEqualTo(1);
+            assertThat(count(connection, "test_run_log_blobs_default", runId)).isEqualTo(1);
+
+            for (String parentTable : PARENT_TABLES) {
+                assertThat(createMonthPartition(connection, parentTable, LocalDate.of(2099, 1, 1))).isTrue();
+                assertThat(createMonthPartition(connection, parentTable, LocalDate.of(2099, 1, 1))).isFalse();
+            }
+
+            for (String parentTable : PARENT_TABLES) {
+                assertThat(count(connection, parentTable + "_p2099_01", runId)).as(parentTable).isEqualTo(1);
+                assertThat(count(connection, parentTable + "_default", runId)).as(parentTable).isZero();
+                assertThat(isAttached(connection, parentTable, parentTable + "_default")).as(parentTable).isTrue();
+            }
+        }
+    }
+
+    @Test
+    void expiredMonthsAreDroppedWithTheirChecksAndLogs() throws SQLException {
+        try (Connection connection = connect()) {
+            for (String parentTable : PARENT_TABLES) {
+                createMonthPartition(connection, parentTable, LocalDate.of(2000, 1, 1));
+                createMonthPartition(connection, parentTable, LocalDate.of(2000, 2, 1));
+            }
+            long expiredRunId = insertRun(connection, LocalDateTime.of(2000, 1, 20, 8, 0));
+            long keptRunId = insertRun(connection, LocalDateTime.of(2000, 2, 3, 8, 0));
+
+            List<String> dropped = dropExpiredPartitions(connection, LocalDateTime.of(2000, 2, 15, 0, 0), false);
+
+            assertThat(dropped).containsExactly("test_runs_p2000_01");
+            for (String parentTable : PARENT_TABLES) {
+                assertThat(exists(connection, parentTable + "_p2000_01")).as(parentTable).isFalse();
+                assertThat(count(connection, parentTable, expiredRunId)).as(parentTable).isZero();
+                assertThat(count(connection, parentTable, keptRunId)).as(parentTable).isEqualTo(1);
+            }
+        }
+    }
+
+    /*
+    Rows of an expired month that went to the default partitions are moved into a partition of their month
+    first, so archiving detaches them together with the rest of the month.
+     */
+    @Test
+    void archivedMonthsAreDetachedWithTheirDefaultRows() throws SQLException {
+        try (Connection connection = connect()) {
+            long defaultRunId = insertRun(connection, LocalDateTime.of(2001, 5, 10, 8, 0));
+
+            List<String> archived = dropExpiredPartitions(connection, LocalDateTime.of(2001, 6, 1, 0, 0), true);
+
+            assertThat(archived).contains("test_runs_p2001_05");
+            for (String parentTable : PARENT_TABLES) {
+                String partition = parentTable + "_p2001_05";
+                assertThat(exists(connection, partition)).as(partition).isTrue();
+                assertThat(isAttached(connection, parentTable, partition)).as(partition).isFalse();
+                assertThat(count(connection, partition, defaultRunId)).as(partition).isEqualTo(1);
+                assertThat(count(connection, parentTable, defaultRunId)).as(parentTable).isZero();
+            }
+        }
+    }
+
+    @Test
+    void expiredDefaultRowsAreDeletedInBatches() throws SQLException {
+        try (Connection connection = connect()) {
+            List<Long> expiredRunIds = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                expiredRunIds.add(insertRun(connection, LocalDateTime.of(2002, 2, 1 + i, 8, 0)));
+            }
+            long keptRunId = insertRun(connection, LocalDateTime.of(2098, 3, 1, 8, 0));
+
+            LocalDateTime cutoff = LocalDateTime.of(2002, 3, 10, 0, 0);
+            List<Integer> batches = new ArrayList<>();
+            int deleted;
+            while ((deleted = deleteExpiredDefaultRows(connection, cutoff, 2)) > 0) {
+                batches.add(deleted);
+            }
+
+            assertThat(batches).allSatisfy(batch -> assertThat(batch).isLessThanOrEqualTo(2 * PARENT_TABLES.length));
+            assertThat(batches.stream().mapToInt(Integer::intValue).sum()).isEqualTo(5 * PARENT_TABLES.length);
+            for (String parentTable : PARENT_TABLES) {
+                for (long runId : expiredRunIds) {
+                    assertThat(count(connection, parentTable, runId)).as(parentTable).isZero();
+                }
+                assertThat(count(connection, parentTable + "_default", keptRunId)).as(parentTable).isEqualTo(1);
+            }
+        }
+    }
+
+    /*
+    A run with one check row and an offloaded log, all with the run's queued_at.
+     */
+    private static long insertRun(Connection connection, LocalDateTime queuedAt) throws SQLException {
+        long runId = ids.incrementAndGet();
+        Timestamp timestamp = Timestamp.valueOf(queuedAt);
+        try (PreparedStatement runInsert = connection.prepareStatement(
+                "INSERT INTO test_runs (id, spec_id, status, queued_at) VALUES (?, ?, 'PASS', ?)");
+             PreparedStatement checkInsert = connection.prepareStatement("""
+                     INSERT INTO test_run_checks (id, run_id, spec_id, check_type, passed, queued_at, finished_at)
+                     VALUES (?, ?, ?, 'STATUS_CODE', TRUE, ?, ?)""");
+             PreparedStatement blobInsert = connection.prepareStatement(
+                     "INSERT INTO test_run_log_blobs (run_id, queued_at, data) VALUES (?, ?, ?)")) {
+            runInsert.setLong(1, runId);
+            runInsert.setLong(2, specId);
+            runInsert.setTimestamp(3, timestamp);
+            runInsert.executeUpdate();
+
+            checkInsert.setLong(1, runId);
+            checkInsert.setLong(2, runId);
+            checkInsert.setLong(3, specId);
+            checkInsert.setTimestamp(4, timestamp);
+            checkInsert.setTimestamp(5, timestamp);
+            checkInsert.executeUpdate();
+
+            blobInsert.setLong(1, runId);
+            blobInsert.setTimestamp(2, timestamp);
+            blobInsert.setBytes(3, new byte[]{1, 2, 3});
+            blobInsert.executeUpdate();
+        }
+        return runId;
+    }
+
+    private static boolean createMonthPartition(Connection connection, String parentTable, LocalDate monthStart) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT create_month_partition(?, ?)")) {
+            statement.setString(1, parentTable);
+            statement.setTimestamp(2, Timestamp.valueOf(monthStart.atStartOfDay()));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static List<String> dropExpiredPartitions(Connection connection, LocalDateTime cutoff, boolean archive) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT drop_expired_test_runs_partitions(?, ?)")) {
+            statement.setTimestamp(1, Timestamp.valueOf(cutoff));
+            statement.setBoolean(2, archive);
+            List<String> partitions = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    partitions.add(resultSet.getString(1));
+                }
+            }
+            return partitions;
+        }
+    }
+
+    private static int deleteExpiredDefaultRows(Connection connection, LocalDateTime cutoff, int batchSize) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT delete_expired_default_rows(?, ?)")) {
+            statement.setTimestamp(1, Timestamp.valueOf(cutoff));
+            statement.setInt(2, batchSize);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    private static long count(Connection connection, String table, long runId) throws SQLException {
+        String runIdColumn = table.startsWith("test_runs") ? "id" : "run_id";
+        return queryLong(connection, "SELECT count(*) FROM %s WHERE %s = %d".formatted(table, runIdColumn, runId));
+    }
+
+    private static boolean exists(Connection connection, String table) throws SQLException {
+        return queryLong(connection, "SELECT count(*) FROM pg_class WHERE relname = '%s'".formatted(table)) > 0;
+    }
+
+    private static boolean isAttached(Connection connection, String parentTable, String partition) throws SQLException {
+        return queryLong(connection, """
+                SELECT count(*) FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = '%s'::REGCLASS AND c.relname = '%s'""".formatted(parentTable, partition)) > 0;
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static String monthSuffix(LocalDate monthStart) {
+        return "_p" + monthStart.format(DateTimeFormatter.ofPattern("yyyy_MM"));
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}